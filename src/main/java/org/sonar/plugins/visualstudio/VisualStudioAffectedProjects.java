@@ -0,0 +1,135 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Computes the projects affected by a set of changed files: the projects owning those files,
+ * and transitively all the projects referencing them through &lt;ProjectReference&gt; items.
+ * Web sites have no project file and own all the files within their directory.
+ * <p/>
+ * Paths are matched once lexically normalized, and regardless of their case unless paths are case-sensitive.
+ */
+public class VisualStudioAffectedProjects {
+
+  private final Collection<File> changedFiles;
+  private final boolean caseInsensitive;
+  private final Multimap<String, String> owners = HashMultimap.create();
+  private final Multimap<String, String> referencingProjects = HashMultimap.create();
+  private final List<String> webSiteKeys = Lists.newArrayList();
+  private Set<String> affectedProjects;
+
+  public VisualStudioAffectedProjects(Collection<File> changedFiles) {
+    this(changedFiles, false);
+  }
+
+  public VisualStudioAffectedProjects(Collection<File> changedFiles, boolean caseInsensitive) {
+    this.changedFiles = changedFiles;
+    this.caseInsensitive = caseInsensitive;
+  }
+
+  public void addProject(File projectFile, VisualStudioProject project) {
+    File projectDir = projectFile.getAbsoluteFile().getParentFile();
+    String projectKey = key(VisualStudioLexicalPaths.normalize(projectFile));
+
+    owners.put(projectKey, projectKey);
+    for (String filePath : project.files()) {
+      owners.put(key(VisualStudioLexicalPaths.normalize(new File(projectDir, filePath.replace('\\', '/')))), projectKey);
+    }
+    for (String projectReference : project.projectReferences()) {
+      referencingProjects.put(key(VisualStudioLexicalPaths.normalize(new File(projectDir, projectReference.replace('\\', '/')))), projectKey);
+    }
+
+    affectedProjects = null;
+  }
+
+  public void addWebSite(File siteDir) {
+    webSiteKeys.add(key(VisualStudioLexicalPaths.normalize(siteDir)));
+    affectedProjects = null;
+  }
+
+  /**
+   * @param projectFile the project file, or the directory of a web site
+   */
+  public boolean isAffected(File projectFile) {
+    if (affectedProjects == null) {
+      affectedProjects = computeAffectedProjects();
+    }
+    return affectedProjects.contains(key(VisualStudioLexicalPaths.normalize(projectFile)));
+  }
+
+  /**
+   * @return the changed files owned by none of the projects, such as imported .props and .targets files
+   */
+  public List<File> unownedFiles() {
+    List<File> result = Lists.newArrayList();
+    for (File changedFile : changedFiles) {
+      if (owners(key(VisualStudioLexicalPaths.normalize(changedFile))).isEmpty()) {
+        result.add(changedFile);
+      }
+    }
+    return result;
+  }
+
+  private Set<String> computeAffectedProjects() {
+    Set<String> result = Sets.newHashSet();
+    LinkedList<String> queue = Lists.newLinkedList();
+
+    for (File changedFile : changedFiles) {
+      queue.addAll(owners(key(VisualStudioLexicalPaths.normalize(changedFile))));
+    }
+
+    while (!queue.isEmpty()) {
+      String projectKey = queue.removeFirst();
+      if (result.add(projectKey)) {
+        queue.addAll(referencingProjects.get(projectKey));
+      }
+    }
+
+    return result;
+  }
+
+  private Collection<String> owners(String fileKey) {
+    Collection<String> result = owners.get(fileKey);
+    for (String webSiteKey : webSiteKeys) {
+      if (VisualStudioLexicalPaths.isInDir(fileKey, webSiteKey)) {
+        result = Lists.newArrayList(result);
+        result.add(webSiteKey);
+      }
+    }
+    return result;
+  }
+
+  private String key(String normalizedPath) {
+    return caseInsensitive ? normalizedPath.toLowerCase(Locale.ENGLISH) : normalizedPath;
+  }
+
+}
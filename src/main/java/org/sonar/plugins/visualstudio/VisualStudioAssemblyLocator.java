@@ -40,13 +40,28 @@ public class VisualStudioAssemblyLocator {
   private static final Comparator<File> FILE_LAST_MODIFIED_COMPARATOR = new FileLastModifiedComparator();
 
   private final Settings settings;
+  private final VisualStudioDiagnostics diagnostics;
 
   public VisualStudioAssemblyLocator(Settings settings) {
+    this(settings, new VisualStudioDiagnostics(settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_VERBOSE_PROPERTY_KEY)));
+  }
+
+  public VisualStudioAssemblyLocator(Settings settings, VisualStudioDiagnostics diagnostics) {
     this.settings = settings;
+    this.diagnostics = diagnostics;
+  }
+
+  /**
+   * @return the collector of the diagnostics, which the project builder reports along with its own
+   */
+  public VisualStudioDiagnostics diagnostics() {
+    return diagnostics;
   }
 
   public File locateAssembly(String projectName, File projectFile, VisualStudioProject project) {
-    LOG.info("Locating the assembly for the project: " + projectName + "...");
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Locating the assembly for the project: " + projectName + "...");
+    }
     if (project.outputType() == null || project.assemblyName() == null) {
       LOG.info("Unable to locate the assembly as either the output type or the assembly name is missing.");
       return null;
@@ -59,10 +74,10 @@ public class VisualStudioAssemblyLocator {
     }
 
     String assemblyFileName = project.assemblyName() + "." + extension;
-    List<File> candidates = candidates(assemblyFileName, projectFile, project);
+    List<File> candidates = candidates(projectName, assemblyFileName, projectFile, project);
 
     if (candidates.isEmpty()) {
-      LOG.warn("Unable to locate the assembly of project " + projectFile.getAbsolutePath());
+      diagnostics.add(VisualStudioDiagnostics.Category.ASSEMBLY_NOT_FOUND, projectName, projectFile);
       return null;
     }
 
@@ -95,7 +110,7 @@ public class VisualStudioAssemblyLocator {
     return result;
   }
 
-  private List<File> candidates(String assemblyFileName, File projectFile, VisualStudioProject project) {
+  private List<File> candidates(String projectName, String assemblyFileName, File projectFile, VisualStudioProject project) {
     List<File> candidates = Lists.newArrayList();
 
     String explicitOutputPaths = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_OUTPUT_PATHS_PROPERTY_KEY);
@@ -113,13 +128,14 @@ public class VisualStudioAssemblyLocator {
         File candidate = new File(projectFile.getParentFile(), outputPath.replace('\\', '/') + '/' + assemblyFileName);
 
         if (!candidate.isFile()) {
-          LOG.info("The following candidate assembly was not built: " + candidate.getAbsolutePath());
+          diagnostics.add(VisualStudioDiagnostics.Category.ASSEMBLY_CANDIDATE_NOT_BUILT, projectName, candidate);
         } else if (matchesBuildConfigurationAndPlatform(project.propertyGroupConditions().get(i))) {
-          LOG.info("The following candidate assembly was found: " + candidate.getAbsolutePath());
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("The following candidate assembly was found: " + candidate.getAbsolutePath());
+          }
           candidates.add(candidate);
         } else {
-          LOG.info("The following candidate assembly was found, but rejected because it does not match the request build configuration and platform: "
-            + candidate.getAbsolutePath());
+          diagnostics.add(VisualStudioDiagnostics.Category.ASSEMBLY_CANDIDATE_REJECTED, projectName, candidate);
         }
       }
     }
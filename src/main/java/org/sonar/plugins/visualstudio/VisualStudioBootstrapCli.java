@@ -0,0 +1,203 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Closeables;
+import org.sonar.api.batch.bootstrap.ProjectBuilder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the bootstrap outside of SonarQube, and writes the resulting modules to a "sonar-project.properties" file which
+ * can be reused by later analyses without bootstrapping again.
+ * <p/>
+ * Usage: <code>java -cp sonar-plugin-api-deps.jar:sonar-visual-studio-plugin.jar org.sonar.plugins.visualstudio.VisualStudioBootstrapCli
+ * &lt;solution file&gt; [-Dkey=value ...] [-o &lt;output file&gt;]</code>
+ */
+public final class VisualStudioBootstrapCli {
+
+  private static final String DEFAULT_OUTPUT_FILE_NAME = "sonar-project.properties";
+  private static final String PROJECT_KEY_PROPERTY_KEY = "sonar.projectKey";
+  private static final String PROJECT_BASE_DIR_PROPERTY_KEY = "sonar.projectBaseDir";
+  private static final String WORKING_DIRECTORY_PROPERTY_KEY = "sonar.working.directory";
+
+  private VisualStudioBootstrapCli() {
+  }
+
+  public static void main(String[] args) {
+    System.exit(run(args, System.out));
+  }
+
+  @VisibleForTesting
+  static int run(String[] args, PrintStream out) {
+    File solutionFile = null;
+    File outputFile = null;
+    Map<String, String> properties = Maps.newHashMap();
+
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("-D") && arg.indexOf('=') > 2) {
+        properties.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+      } else if ("-o".equals(arg) && i + 1 < args.length) {
+        i++;
+        outputFile = new File(args[i]);
+      } else if (solutionFile == null && !arg.startsWith("-")) {
+        solutionFile = new File(arg).getAbsoluteFile();
+      } else {
+        out.println("Unexpected argument: " + arg);
+        solutionFile = null;
+        break;
+      }
+    }
+
+    if (solutionFile == null || !solutionFile.isFile()) {
+      out.println("Usage: " + VisualStudioBootstrapCli.class.getName() + " <solution file> [-Dkey=value ...] [-o <output file>]");
+      return 1;
+    }
+
+    File baseDir = solutionFile.getParentFile();
+    if (outputFile == null) {
+      outputFile = new File(baseDir, DEFAULT_OUTPUT_FILE_NAME);
+    }
+
+    long start = System.nanoTime();
+    ProjectDefinition root = bootstrap(solutionFile, properties, out);
+    long bootstrapNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    write(root, outputFile);
+    long writeNanos = System.nanoTime() - start;
+
+    out.println("Written " + root.getSubProjects().size() + " modules to " + outputFile.getAbsolutePath());
+    out.println("Bootstrap: " + bootstrapNanos / 1000000 + " ms, writing: " + writeNanos / 1000000 + " ms");
+    return 0;
+  }
+
+  private static ProjectDefinition bootstrap(File solutionFile, Map<String, String> properties, PrintStream out) {
+    File baseDir = solutionFile.getParentFile();
+
+    // With the plugin property definitions, so that their default values apply as in an analysis
+    Settings settings = new Settings(new PropertyDefinitions(new VisualStudioPlugin().getExtensions().toArray()));
+    settings.addProperties(properties);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SOLUTION_PROPERTY_KEY, solutionFile.getName());
+
+    String projectKey = settings.getString("sonar.projectKey");
+    ProjectDefinition root = ProjectDefinition.create()
+      .setKey(projectKey == null ? VisualStudioProjectBuilder.escapeProjectName(solutionFile.getName().replaceFirst("\\.sln$", "")) : projectKey)
+      .setBaseDir(baseDir)
+      .setWorkDir(new File(baseDir, ".sonar"));
+
+    final ProjectReactor reactor = new ProjectReactor(root);
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(new ProjectBuilder.Context() {
+      @Override
+      public ProjectReactor projectReactor() {
+        return reactor;
+      }
+    });
+
+    out.println("Bootstrap phases: " + builder.report());
+    return root;
+  }
+
+  private static void write(ProjectDefinition root, File outputFile) {
+    List<String> moduleIds = Lists.newArrayList();
+    for (ProjectDefinition module : root.getSubProjects()) {
+      moduleIds.add(moduleId(module));
+    }
+
+    Writer writer = null;
+    try {
+      writer = new OutputStreamWriter(new FileOutputStream(outputFile), Charsets.ISO_8859_1);
+      writer.write("# Generated by " + VisualStudioBootstrapCli.class.getName() + "\n");
+      writeProperty(writer, VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, "false");
+      writeProperty(writer, "sonar.modules", Joiner.on(',').join(moduleIds));
+
+      for (ProjectDefinition module : root.getSubProjects()) {
+        String moduleId = moduleId(module);
+        writer.write("\n");
+        // The base and work directories are not properties of the module, and the runner prefixes the key of the root
+        writeProperty(writer, moduleId + "." + PROJECT_KEY_PROPERTY_KEY, moduleId);
+        writeProperty(writer, moduleId + "." + PROJECT_BASE_DIR_PROPERTY_KEY, module.getBaseDir().getAbsolutePath());
+        if (module.getWorkDir() != null) {
+          writeProperty(writer, moduleId + "." + WORKING_DIRECTORY_PROPERTY_KEY, module.getWorkDir().getAbsolutePath());
+        }
+        for (String key : Ordering.natural().sortedCopy(module.getProperties().stringPropertyNames())) {
+          if (!PROJECT_KEY_PROPERTY_KEY.equals(key)) {
+            writeProperty(writer, moduleId + "." + key, module.getProperties().getProperty(key));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write " + outputFile.getAbsolutePath(), e);
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+  private static String moduleId(ProjectDefinition module) {
+    return module.getKey().substring(module.getKey().lastIndexOf(':') + 1);
+  }
+
+  private static void writeProperty(Writer writer, String key, String value) throws IOException {
+    writer.write(escape(key, true));
+    writer.write('=');
+    writer.write(escape(value, false));
+    writer.write('\n');
+  }
+
+  private static String escape(String s, boolean isKey) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' || ((c == '=' || c == ':' || c == ' ') && isKey) || c == '#' || c == '!') {
+        sb.append('\\').append(c);
+      } else if (c == '\n') {
+        sb.append("\\n");
+      } else if (c == '\r') {
+        sb.append("\\r");
+      } else if (c > 0x7e) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Records timed events for each phase of the bootstrap and each project, carrying the project name, the number of
+ * items, the number of bytes read and the outcome, and writes them in the Trace Event format, which can be opened
+ * in chrome://tracing or Perfetto.
+ * <p/>
+ * When disabled, {@link #begin()} and {@link #end(String, String, long, long, long, String)} only test a final field,
+ * and nothing is allocated.
+ */
+public class VisualStudioBootstrapEvents {
+
+  private final boolean enabled;
+  private final long originNanos = System.nanoTime();
+  private final List<Event> events = Lists.newArrayList();
+
+  public VisualStudioBootstrapEvents(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the start time to pass to {@link #end(String, String, long, long, long, String)}
+   */
+  public long begin() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * @param items the number of items processed, or -1 if not applicable
+   * @param bytes the number of bytes read, or -1 if not applicable
+   */
+  public void end(String phase, @Nullable String projectName, long startNanos, long items, long bytes, String outcome) {
+    if (!enabled) {
+      return;
+    }
+
+    Event event = new Event(phase, projectName, startNanos - originNanos, System.nanoTime() - startNanos, Thread.currentThread().getId(), items, bytes, outcome);
+    synchronized (events) {
+      events.add(event);
+    }
+  }
+
+  public int size() {
+    synchronized (events) {
+      return events.size();
+    }
+  }
+
+  public void writeTrace(File file) throws IOException {
+    Writer writer = null;
+    try {
+      Files.createParentDirs(file);
+      writer = Files.newWriter(file, Charsets.UTF_8);
+      writer.write("{\"traceEvents\":[");
+      synchronized (events) {
+        for (int i = 0; i < events.size(); i++) {
+          writer.write(i == 0 ? "\n" : ",\n");
+          events.get(i).write(writer);
+        }
+      }
+      writer.write("\n]}\n");
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+  private static String quote(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  private static class Event {
+
+    private final String phase;
+    private final String projectName;
+    private final long startNanos;
+    private final long durationNanos;
+    private final long threadId;
+    private final long items;
+    private final long bytes;
+    private final String outcome;
+
+    public Event(String phase, @Nullable String projectName, long startNanos, long durationNanos, long threadId, long items, long bytes, String outcome) {
+      this.phase = phase;
+      this.projectName = projectName;
+      this.startNanos = startNanos;
+      this.durationNanos = durationNanos;
+      this.threadId = threadId;
+      this.items = items;
+      this.bytes = bytes;
+      this.outcome = outcome;
+    }
+
+    public void write(Writer writer) throws IOException {
+      writer.write("{\"name\":" + quote(projectName == null ? phase : (phase + " " + projectName)) + ",\"cat\":" + quote(phase)
+        + ",\"ph\":\"X\",\"pid\":1,\"tid\":" + threadId + ",\"ts\":" + startNanos / 1000 + ",\"dur\":" + durationNanos / 1000 + ",\"args\":{");
+      if (projectName != null) {
+        writer.write("\"project\":" + quote(projectName) + ",");
+      }
+      if (items >= 0) {
+        writer.write("\"items\":" + items + ",");
+      }
+      if (bytes >= 0) {
+        writer.write("\"bytes\":" + bytes + ",");
+      }
+      writer.write("\"outcome\":" + quote(outcome) + "}}");
+    }
+
+  }
+
+}
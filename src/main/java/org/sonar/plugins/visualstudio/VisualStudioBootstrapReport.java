@@ -0,0 +1,67 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent in each phase of the bootstrap, and counters of what was done during those phases.
+ */
+public class VisualStudioBootstrapReport {
+
+  private final Map<String, Long> durations = Maps.newLinkedHashMap();
+  private final Map<String, Long> counters = Maps.newLinkedHashMap();
+
+  public synchronized void addDuration(String phase, long nanos) {
+    Long previous = durations.get(phase);
+    durations.put(phase, previous == null ? nanos : (previous + nanos));
+  }
+
+  public synchronized void increment(String counter, long delta) {
+    Long previous = counters.get(counter);
+    counters.put(counter, previous == null ? delta : (previous + delta));
+  }
+
+  public synchronized long durationMillis(String phase) {
+    Long nanos = durations.get(phase);
+    return nanos == null ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  public synchronized long counter(String counter) {
+    Long value = counters.get(counter);
+    return value == null ? 0 : value;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (String phase : durations.keySet()) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(phase).append(": ").append(durationMillis(phase)).append(" ms");
+    }
+    for (Map.Entry<String, Long> entry : counters.entrySet()) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(entry.getKey()).append(": ").append(entry.getValue());
+    }
+    return sb.toString();
+  }
+
+}
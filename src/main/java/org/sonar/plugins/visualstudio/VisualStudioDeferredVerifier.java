@@ -0,0 +1,306 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.sonar.api.utils.MessageException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies in the background the files which were declared in the modules as listed in the projects, without looking
+ * at the file system: their existence, their location in the project directory once symbolic links are resolved, that
+ * no other project owns them, and the exclusions of the generated code filter.
+ * <p/>
+ * The files failing the verification are reported to the diagnostics and have to be removed from the modules once
+ * {@link #await()} returns. The verification fails fast, on the next call to {@link #checkDiscrepancies()}, when more
+ * files than allowed are missing or misplaced, as the declared modules are then too far from the actual workspace.
+ */
+public class VisualStudioDeferredVerifier {
+
+  private static final int REPORTED_DISCREPANCIES = 10;
+
+  private final VisualStudioIoScheduler scheduler;
+  private final VisualStudioGeneratedCodeFilter generatedCodeFilter;
+  private final VisualStudioDiagnostics diagnostics;
+  private final int maxDiscrepancies;
+  private final VisualStudioFileOwnership ownership = new VisualStudioFileOwnership();
+  private final List<Claim> claims = Collections.synchronizedList(Lists.<Claim>newArrayList());
+  private final Set<String> rejectedPaths = Collections.synchronizedSet(Sets.<String>newHashSet());
+  private final List<String> discrepancies = Collections.synchronizedList(Lists.<String>newArrayList());
+  private final AtomicInteger discrepanciesCount = new AtomicInteger();
+  private final AtomicInteger excludedGeneratedFiles = new AtomicInteger();
+  private final AtomicInteger excludedOversizedFiles = new AtomicInteger();
+  // By absolute path, only when sizing
+  private final ConcurrentMap<String, Long> fileSizes;
+  private Thread producer;
+  // Confined to the producer thread
+  private List<Verification> pending;
+  private int batchSize;
+  private volatile Throwable producerFailure;
+  private volatile boolean isStopped;
+
+  public VisualStudioDeferredVerifier(VisualStudioIoScheduler scheduler, VisualStudioGeneratedCodeFilter generatedCodeFilter, VisualStudioDiagnostics diagnostics,
+    int maxDiscrepancies, boolean isSizing) {
+    this.scheduler = scheduler;
+    this.generatedCodeFilter = generatedCodeFilter;
+    this.diagnostics = diagnostics;
+    this.maxDiscrepancies = maxDiscrepancies;
+    this.fileSizes = isSizing ? Maps.<String, Long>newConcurrentMap() : null;
+    this.batchSize = scheduler.batchSize();
+    this.pending = Lists.newArrayListWithCapacity(batchSize);
+  }
+
+  /**
+   * Runs the given producer in a background thread, which is expected to call {@link #verify(String, int, File, String, boolean, boolean)}
+   * for each declared file.
+   */
+  public void start(final Runnable files) {
+    producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          files.run();
+          submitPending();
+        } catch (Throwable e) {
+          producerFailure = e;
+        }
+      }
+    }, "visualstudio-verification");
+    producer.setDaemon(true);
+    producer.start();
+  }
+
+  /**
+   * Only called from the producer thread: the files are submitted to the scheduler in batches of
+   * {@link VisualStudioIoScheduler#batchSize()} files.
+   */
+  public void verify(String projectName, int projectIndex, File file, String canonicalProjectDir, boolean isLinked, boolean isAutoGenerated) {
+    if (isStopped) {
+      return;
+    }
+    pending.add(new Verification(projectName, projectIndex, file, canonicalProjectDir, isLinked, isAutoGenerated));
+    if (pending.size() >= batchSize) {
+      submitPending();
+    }
+  }
+
+  private void submitPending() {
+    if (pending.isEmpty() || isStopped) {
+      return;
+    }
+    final List<Verification> batch = pending;
+    scheduler.submit(new Runnable() {
+      @Override
+      public void run() {
+        for (Verification verification : batch) {
+          verifyFile(verification.projectName, verification.projectIndex, verification.file, verification.canonicalProjectDir, verification.isLinked,
+            verification.isAutoGenerated);
+        }
+      }
+    }, batch.size());
+    batchSize = scheduler.batchSize();
+    pending = Lists.newArrayListWithCapacity(batchSize);
+  }
+
+  private void verifyFile(String projectName, int projectIndex, File file, String canonicalProjectDir, boolean isLinked, boolean isAutoGenerated) {
+    if (!file.isFile()) {
+      reject(VisualStudioDiagnostics.Category.MISSING_FILE, projectName, file);
+      return;
+    }
+
+    if (fileSizes != null) {
+      fileSizes.put(file.getAbsolutePath(), file.length());
+    }
+
+    String canonicalPath = canonicalPath(file);
+    if (!isLinked && !VisualStudioLexicalPaths.isInDir(canonicalPath, canonicalProjectDir)) {
+      reject(VisualStudioDiagnostics.Category.FILE_OUTSIDE_PROJECT_DIR, projectName, file);
+      return;
+    }
+
+    ownership.claim(canonicalPath, projectName, projectIndex, canonicalProjectDir);
+    claims.add(new Claim(projectName, projectIndex, file, canonicalPath));
+
+    VisualStudioGeneratedCodeFilter.Exclusion exclusion = generatedCodeFilter.exclusion(file, isAutoGenerated);
+    if (exclusion == VisualStudioGeneratedCodeFilter.Exclusion.GENERATED) {
+      excludedGeneratedFiles.incrementAndGet();
+      exclude(VisualStudioDiagnostics.Category.GENERATED_FILE_EXCLUDED, projectName, file);
+    } else if (exclusion == VisualStudioGeneratedCodeFilter.Exclusion.OVERSIZED) {
+      excludedOversizedFiles.incrementAndGet();
+      exclude(VisualStudioDiagnostics.Category.OVERSIZED_FILE_EXCLUDED, projectName, file);
+    }
+  }
+
+  private void reject(VisualStudioDiagnostics.Category category, String projectName, File file) {
+    exclude(category, projectName, file);
+    if (discrepanciesCount.incrementAndGet() <= REPORTED_DISCREPANCIES) {
+      discrepancies.add(category.name() + " " + projectName + " " + file.getAbsolutePath());
+    }
+  }
+
+  private void exclude(VisualStudioDiagnostics.Category category, String projectName, File file) {
+    diagnostics.add(category, projectName, file);
+    rejectedPaths.add(file.getAbsolutePath());
+  }
+
+  /**
+   * Fails if more files than allowed did not pass the verification so far.
+   */
+  public void checkDiscrepancies() {
+    if (discrepanciesCount.get() > maxDiscrepancies) {
+      throw MessageException.of(discrepanciesCount.get() + " of the files listed in the Visual Studio projects do not match the workspace, more than the "
+        + maxDiscrepancies + " allowed by the property \"" + VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_MAX_DISCREPANCIES_PROPERTY_KEY + "\", e.g.:\n  "
+        + joinDiscrepancies());
+    }
+  }
+
+  private String joinDiscrepancies() {
+    synchronized (discrepancies) {
+      StringBuilder sb = new StringBuilder();
+      for (String discrepancy : discrepancies) {
+        sb.append(sb.length() == 0 ? "" : "\n  ").append(discrepancy);
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Waits for the end of the verification.
+   *
+   * @return the absolute paths of the files to remove from the modules
+   */
+  public Set<String> await() {
+    try {
+      producer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+    if (producerFailure != null) {
+      throw Throwables.propagate(producerFailure);
+    }
+    scheduler.awaitCompletion();
+
+    // Files reached through symbolic links from several projects are only known once all of them were resolved
+    for (Claim claim : claims) {
+      if (!ownership.isOwnedBy(claim.canonicalPath, claim.projectIndex)) {
+        reject(VisualStudioDiagnostics.Category.FILE_OWNED_BY_ANOTHER_PROJECT, claim.projectName, claim.file);
+      }
+    }
+    checkDiscrepancies();
+
+    return rejectedPaths;
+  }
+
+  /**
+   * @return the sizes of the verified files by their absolute path, empty unless sizing, complete once {@link #await()} returned
+   */
+  public Map<String, Long> fileSizes() {
+    return fileSizes == null ? Collections.<String, Long>emptyMap() : fileSizes;
+  }
+
+  /**
+   * Stops the verification still in progress, if any: the producer stops submitting files, and the scheduler is only
+   * shut down once it is done with them.
+   */
+  public void stop() {
+    isStopped = true;
+    if (producer != null) {
+      try {
+        producer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    scheduler.shutdown();
+  }
+
+  public VisualStudioFileOwnership ownership() {
+    return ownership;
+  }
+
+  public int discrepancies() {
+    return discrepanciesCount.get();
+  }
+
+  public int excludedGeneratedFiles() {
+    return excludedGeneratedFiles.get();
+  }
+
+  public int excludedOversizedFiles() {
+    return excludedOversizedFiles.get();
+  }
+
+  private static String canonicalPath(File file) {
+    try {
+      return file.getCanonicalPath().replace('\\', '/');
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static class Verification {
+
+    private final String projectName;
+    private final int projectIndex;
+    private final File file;
+    private final String canonicalProjectDir;
+    private final boolean isLinked;
+    private final boolean isAutoGenerated;
+
+    public Verification(String projectName, int projectIndex, File file, String canonicalProjectDir, boolean isLinked, boolean isAutoGenerated) {
+      this.projectName = projectName;
+      this.projectIndex = projectIndex;
+      this.file = file;
+      this.canonicalProjectDir = canonicalProjectDir;
+      this.isLinked = isLinked;
+      this.isAutoGenerated = isAutoGenerated;
+    }
+
+  }
+
+  private static class Claim {
+
+    private final String projectName;
+    private final int projectIndex;
+    private final File file;
+    private final String canonicalPath;
+
+    public Claim(String projectName, int projectIndex, File file, String canonicalPath) {
+      this.projectName = projectName;
+      this.projectIndex = projectIndex;
+      this.file = file;
+      this.canonicalPath = canonicalPath;
+    }
+
+  }
+
+}
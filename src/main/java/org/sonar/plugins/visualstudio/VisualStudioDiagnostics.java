@@ -0,0 +1,146 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the per-file and per-assembly events of the bootstrap, which would otherwise flood the logs on large solutions.
+ * Only a bounded summary is logged, and the full detail is kept and written to a file only in verbose mode.
+ */
+public class VisualStudioDiagnostics {
+
+  private static final int TOP_PROJECTS_COUNT = 5;
+
+  public enum Category {
+    MISSING_FILE("files could not be found", true),
+    FILE_OUTSIDE_PROJECT_DIR("files located outside of the project directory were skipped", true),
+    FILE_OWNED_BY_ANOTHER_PROJECT("files already analyzed as part of another project were skipped", false),
+    ASSEMBLY_CANDIDATE_NOT_BUILT("candidate assemblies were not built", false),
+    ASSEMBLY_CANDIDATE_REJECTED("candidate assemblies were rejected as they do not match the requested build configuration and platform", false),
+    ASSEMBLY_NOT_FOUND("projects have no assembly that could be located", true),
+    GENERATED_FILE_EXCLUDED("generated files were excluded", false),
+    OVERSIZED_FILE_EXCLUDED("files larger than the maximum file size were excluded", false);
+
+    private final String description;
+    private final boolean isWarning;
+
+    private Category(String description, boolean isWarning) {
+      this.description = description;
+      this.isWarning = isWarning;
+    }
+
+  }
+
+  private final boolean verbose;
+  private final Map<Category, Multiset<String>> counts = Maps.newEnumMap(Category.class);
+  private final List<String> details = Lists.newArrayList();
+
+  public VisualStudioDiagnostics(boolean verbose) {
+    this.verbose = verbose;
+  }
+
+  /**
+   * @param subject the file or the path concerned by the event, only converted to a string in verbose mode
+   */
+  public synchronized void add(Category category, String projectName, Object subject) {
+    Multiset<String> projectCounts = counts.get(category);
+    if (projectCounts == null) {
+      projectCounts = HashMultiset.create();
+      counts.put(category, projectCounts);
+    }
+    projectCounts.add(projectName);
+
+    if (verbose) {
+      String path = subject instanceof File ? ((File) subject).getAbsolutePath() : String.valueOf(subject);
+      details.add(category + "\t" + projectName + "\t" + path);
+    }
+  }
+
+  public synchronized int count(Category category) {
+    Multiset<String> projectCounts = counts.get(category);
+    return projectCounts == null ? 0 : projectCounts.size();
+  }
+
+  public synchronized void log(Logger logger) {
+    for (Map.Entry<Category, Multiset<String>> entry : counts.entrySet()) {
+      Category category = entry.getKey();
+      Multiset<String> projectCounts = entry.getValue();
+
+      String message = projectCounts.size() + " " + category.description + " in " + projectCounts.elementSet().size() + " projects, mostly in: " + topProjects(projectCounts);
+      if (category.isWarning) {
+        logger.warn(message);
+      } else {
+        logger.info(message);
+      }
+    }
+  }
+
+  private static String topProjects(final Multiset<String> projectCounts) {
+    List<String> projects = Lists.newArrayList(projectCounts.elementSet());
+    Collections.sort(projects, new Comparator<String>() {
+      @Override
+      public int compare(String o1, String o2) {
+        int result = projectCounts.count(o2) - projectCounts.count(o1);
+        return result != 0 ? result : o1.compareTo(o2);
+      }
+    });
+
+    StringBuilder sb = new StringBuilder();
+    for (String project : projects.subList(0, Math.min(TOP_PROJECTS_COUNT, projects.size()))) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(project).append(" (").append(projectCounts.count(project)).append(')');
+    }
+    return sb.toString();
+  }
+
+  public synchronized void writeDetails(File file) throws IOException {
+    Writer writer = null;
+    try {
+      Files.createParentDirs(file);
+      writer = Files.newWriter(file, Charsets.UTF_8);
+      for (String detail : details) {
+        writer.write(detail);
+        writer.write('\n');
+      }
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+  public boolean isVerbose() {
+    return verbose;
+  }
+
+}
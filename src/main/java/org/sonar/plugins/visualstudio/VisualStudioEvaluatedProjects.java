@@ -0,0 +1,159 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Projects as evaluated by MSBuild during the build, with their compile items and output assembly.
+ * They are used instead of the project files, which are then not parsed at all. The projects of the solution missing
+ * from here are still parsed from their project file.
+ * <p/>
+ * Only the compile items and the assembly location are kept for each project, so that the memory used does not depend
+ * on the size of the build output these projects are extracted from.
+ * <p/>
+ * The projects are added by the callers, such as {@link VisualStudioProjectManifest} from the manifest written by the
+ * build. The MSBuild binary logs (.binlog) are not read: their record layout changes with the MSBuild versions.
+ */
+public class VisualStudioEvaluatedProjects {
+
+  private final Map<String, VisualStudioProject> projects = Maps.newHashMap();
+
+  /**
+   * @param compileItems the evaluated "Compile" items, absolute or relative to the project directory
+   * @param projectReferences the evaluated "ProjectReference" items, absolute or relative to the project directory
+   * @param targetPath the evaluated "TargetPath" property, i.e. the path of the output assembly
+   */
+  public void add(File projectFile, List<String> compileItems, List<String> projectReferences, @Nullable File targetPath, @Nullable String configuration,
+    @Nullable String platform) {
+    add(projectFile, compileItems, ImmutableList.<String>of(), projectReferences, targetPath, configuration, platform);
+  }
+
+  /**
+   * The compile items outside of the project directory, usually added as links, are flagged as linked files.
+   *
+   * @param autoGeneratedItems the evaluated "Compile" items having the "AutoGen" or "DesignTime" metadata set to true
+   */
+  public synchronized void add(File projectFile, List<String> compileItems, List<String> autoGeneratedItems, List<String> projectReferences, @Nullable File targetPath,
+    @Nullable String configuration, @Nullable String platform) {
+    File projectDir = projectFile.getAbsoluteFile().getParentFile();
+    String projectDirPath = VisualStudioLexicalPaths.normalize(projectDir);
+
+    String outputType = null;
+    String assemblyName = null;
+    List<String> outputPaths = ImmutableList.of();
+    if (targetPath != null) {
+      String fileName = targetPath.getName();
+      int dotIndex = fileName.lastIndexOf('.');
+      outputType = fileName.toLowerCase().endsWith(".exe") ? "Exe" : "Library";
+      assemblyName = dotIndex == -1 ? fileName : fileName.substring(0, dotIndex);
+      outputPaths = ImmutableList.of(relativePath(projectDirPath, targetPath.getAbsoluteFile().getParentFile()));
+    }
+    String condition = configuration == null || platform == null ? "" : (" '$(Configuration)|$(Platform)' == '" + configuration + "|" + platform + "' ");
+
+    List<String> files = relativePaths(projectDirPath, compileItems);
+    Set<String> normalizedAutoGeneratedItems = Sets.newHashSet();
+    for (String autoGeneratedItem : relativePaths(projectDirPath, autoGeneratedItems)) {
+      normalizedAutoGeneratedItems.add(VisualStudioLexicalPaths.normalize(autoGeneratedItem));
+    }
+    ImmutableSet.Builder<String> linkedFiles = ImmutableSet.builder();
+    ImmutableSet.Builder<String> autoGeneratedFiles = ImmutableSet.builder();
+    for (String file : files) {
+      String normalizedFile = VisualStudioLexicalPaths.normalize(file);
+      if (VisualStudioLexicalPaths.isOutside(normalizedFile)) {
+        linkedFiles.add(file);
+      }
+      // Flagged as listed in the compile items, which may be written differently
+      if (normalizedAutoGeneratedItems.contains(normalizedFile)) {
+        autoGeneratedFiles.add(file);
+      }
+    }
+
+    projects.put(canonicalPath(projectFile), new VisualStudioProject(files, outputType, assemblyName, ImmutableList.of(condition),
+      outputPaths, relativePaths(projectDirPath, projectReferences), linkedFiles.build(), autoGeneratedFiles.build(),
+      ImmutableMap.<String, String>of()));
+  }
+
+  private static List<String> relativePaths(String projectDirPath, List<String> paths) {
+    List<String> result = Lists.newArrayList();
+    for (String path : paths) {
+      File file = new File(path.replace('\\', '/'));
+      result.add(file.isAbsolute() ? relativePath(projectDirPath, file) : path);
+    }
+    return ImmutableSet.copyOf(result).asList();
+  }
+
+  @Nullable
+  public synchronized VisualStudioProject project(File projectFile) {
+    return projects.get(canonicalPath(projectFile));
+  }
+
+  public synchronized int size() {
+    return projects.size();
+  }
+
+  /**
+   * Relativizes the path lexically, as the evaluated items are already full paths: there may be millions of them, which
+   * must not cost a file system operation each.
+   */
+  private static String relativePath(String dirPath, File file) {
+    String filePath = VisualStudioLexicalPaths.normalize(file);
+    String ancestor = VisualStudioLexicalPaths.commonDir(filePath, dirPath);
+    if (ancestor == null) {
+      // No common ancestor, e.g. on another drive
+      return filePath;
+    }
+
+    // One ".." per segment of the directory below the common ancestor
+    StringBuilder sb = new StringBuilder();
+    for (int i = ancestor.length(); i < dirPath.length(); i++) {
+      if (dirPath.charAt(i) != '/' && (i == 0 || dirPath.charAt(i - 1) == '/')) {
+        sb.append("../");
+      }
+    }
+    sb.append(filePath.substring(Math.min(filePath.length(), ancestor.length() + (ancestor.endsWith("/") ? 0 : 1))));
+
+    String result = sb.toString();
+    return result.isEmpty() ? "." : result;
+  }
+
+  private static String canonicalPath(File file) {
+    try {
+      return file.getCanonicalPath().replace('\\', '/');
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+}
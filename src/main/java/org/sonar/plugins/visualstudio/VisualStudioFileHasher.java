@@ -0,0 +1,218 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the content hash of every source and test file of the modules, and compares them with the ones of the
+ * previous run, stored in the work directory of the solution.
+ * The changed files of each module are published in its {@link #CHANGED_FILES_PROPERTY_KEY} property, and modules without
+ * any changed file are flagged with {@link #UNCHANGED_MODULE_PROPERTY_KEY}.
+ * <p/>
+ * When only some of the projects are analyzed, the hashes of the other files are kept from the previous run,
+ * so that they are not seen as changed on the next one.
+ */
+public class VisualStudioFileHasher {
+
+  public static final String CHANGED_FILES_PROPERTY_KEY = "sonar.visualstudio.changedFiles";
+  public static final String UNCHANGED_MODULE_PROPERTY_KEY = "sonar.visualstudio.unchanged";
+
+  private static final Logger LOG = LoggerFactory.getLogger(VisualStudioFileHasher.class);
+  private static final String MANIFEST_FILE_NAME = "visualstudio-file-hashes.txt";
+  private static final long MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final int threads;
+
+  public VisualStudioFileHasher(int threads) {
+    this.threads = threads;
+  }
+
+  public void publish(List<ProjectDefinition> modules, File workDir) {
+    publish(modules, workDir, true);
+  }
+
+  /**
+   * @param isComplete false if the modules are only those of some of the projects, e.g. the ones affected by a pull request
+   */
+  public void publish(List<ProjectDefinition> modules, File workDir, boolean isComplete) {
+    File manifestFile = new File(workDir, MANIFEST_FILE_NAME);
+    Map<String, String> previousHashes = readManifest(manifestFile);
+
+    List<String> paths = Lists.newArrayList();
+    for (ProjectDefinition module : modules) {
+      paths.addAll(module.sources());
+      paths.addAll(module.tests());
+    }
+    Map<String, String> hashes = hash(paths);
+
+    int changedFilesCount = 0;
+    for (ProjectDefinition module : modules) {
+      List<String> changedFiles = Lists.newArrayList();
+      for (String path : module.sources()) {
+        addIfChanged(changedFiles, path, hashes, previousHashes);
+      }
+      for (String path : module.tests()) {
+        addIfChanged(changedFiles, path, hashes, previousHashes);
+      }
+
+      module.setProperty(CHANGED_FILES_PROPERTY_KEY, Joiner.on(',').join(changedFiles));
+      module.setProperty(UNCHANGED_MODULE_PROPERTY_KEY, Boolean.toString(changedFiles.isEmpty()));
+      changedFilesCount += changedFiles.size();
+    }
+
+    LOG.info("Hashed " + hashes.size() + " files, " + changedFilesCount + " of which changed since the previous analysis.");
+    if (isComplete) {
+      writeManifest(manifestFile, hashes);
+    } else {
+      Map<String, String> mergedHashes = Maps.newLinkedHashMap(previousHashes);
+      mergedHashes.putAll(hashes);
+      writeManifest(manifestFile, mergedHashes);
+    }
+  }
+
+  private static void addIfChanged(List<String> changedFiles, String path, Map<String, String> hashes, Map<String, String> previousHashes) {
+    if (!hashes.get(path).equals(previousHashes.get(path))) {
+      changedFiles.add(path);
+    }
+  }
+
+  public Map<String, String> hash(Collection<String> paths) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      Map<String, Future<String>> futures = Maps.newLinkedHashMap();
+      for (final String path : paths) {
+        futures.put(path, executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws IOException {
+            return hash(new File(path));
+          }
+        }));
+      }
+
+      Map<String, String> hashes = Maps.newLinkedHashMap();
+      for (Map.Entry<String, Future<String>> entry : futures.entrySet()) {
+        hashes.put(entry.getKey(), entry.getValue().get());
+      }
+      return hashes;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  static String hash(File file) throws IOException {
+    MessageDigest digest = newDigest();
+
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      long size = channel.size();
+      for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position));
+        digest.update(buffer);
+      }
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+
+    byte[] bytes = digest.digest();
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    return new String(hex);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static Map<String, String> readManifest(File manifestFile) {
+    Map<String, String> hashes = Maps.newHashMap();
+    if (!manifestFile.isFile()) {
+      return hashes;
+    }
+
+    try {
+      for (String line : Files.readLines(manifestFile, Charsets.UTF_8)) {
+        int i = line.indexOf(' ');
+        if (i != -1) {
+          hashes.put(line.substring(i + 1), line.substring(0, i));
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to read the previous file hashes from " + manifestFile.getAbsolutePath(), e);
+    }
+    return hashes;
+  }
+
+  private static void writeManifest(File manifestFile, Map<String, String> hashes) {
+    Writer writer = null;
+    try {
+      Files.createParentDirs(manifestFile);
+      writer = Files.newWriter(manifestFile, Charsets.UTF_8);
+      for (Map.Entry<String, String> entry : hashes.entrySet()) {
+        writer.write(entry.getValue() + ' ' + entry.getKey() + '\n');
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write the file hashes to " + manifestFile.getAbsolutePath(), e);
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+}
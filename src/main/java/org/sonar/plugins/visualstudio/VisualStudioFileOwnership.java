@@ -0,0 +1,100 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns each physical file, identified by its canonical path, to exactly one project, whatever the number of projects
+ * referencing it. Projects may claim files concurrently, the owner does not depend on the order of the claims:
+ * <ol>
+ *   <li>Projects whose directory contains the file win over the projects linking to it</li>
+ *   <li>Then, projects with the deepest directory win</li>
+ *   <li>Then, the project declared first in the solution wins</li>
+ * </ol>
+ */
+public class VisualStudioFileOwnership {
+
+  private final ConcurrentMap<String, Owner> owners = Maps.newConcurrentMap();
+
+  public void claim(String canonicalPath, String projectName, int projectIndex, String canonicalProjectDir) {
+    boolean isInProjectDir = VisualStudioLexicalPaths.isInDir(canonicalPath, canonicalProjectDir);
+    Owner candidate = new Owner(projectName, projectIndex, isInProjectDir, depth(canonicalProjectDir));
+
+    Owner current = owners.putIfAbsent(canonicalPath, candidate);
+    while (current != null && candidate.isPreferredOver(current)) {
+      if (owners.replace(canonicalPath, current, candidate)) {
+        return;
+      }
+      current = owners.get(canonicalPath);
+    }
+  }
+
+  public boolean isOwnedBy(String canonicalPath, int projectIndex) {
+    Owner owner = owners.get(canonicalPath);
+    return owner != null && owner.projectIndex == projectIndex;
+  }
+
+  @Nullable
+  public String owner(String canonicalPath) {
+    Owner owner = owners.get(canonicalPath);
+    return owner == null ? null : owner.projectName;
+  }
+
+  private static int depth(String path) {
+    int depth = 0;
+    for (int i = 0; i < path.length(); i++) {
+      if (path.charAt(i) == '/') {
+        depth++;
+      }
+    }
+    return depth;
+  }
+
+  private static class Owner {
+
+    private final String projectName;
+    private final int projectIndex;
+    private final boolean isInProjectDir;
+    private final int projectDirDepth;
+
+    public Owner(String projectName, int projectIndex, boolean isInProjectDir, int projectDirDepth) {
+      this.projectName = projectName;
+      this.projectIndex = projectIndex;
+      this.isInProjectDir = isInProjectDir;
+      this.projectDirDepth = projectDirDepth;
+    }
+
+    public boolean isPreferredOver(Owner other) {
+      if (isInProjectDir != other.isInProjectDir) {
+        return isInProjectDir;
+      } else if (projectDirDepth != other.projectDirDepth) {
+        return projectDirDepth > other.projectDirDepth;
+      }
+      return projectIndex < other.projectIndex;
+    }
+
+  }
+
+}
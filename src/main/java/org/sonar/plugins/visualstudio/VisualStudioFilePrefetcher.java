@@ -0,0 +1,132 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the module files in the background while the bootstrap goes on, so that they already are in the page cache of
+ * the operating system when the sensors read them.
+ * A single low priority thread reads the files sequentially, in the order of the projects, until the byte budget is spent
+ * or {@link #stop()} is called.
+ */
+public class VisualStudioFilePrefetcher {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long STOP_TIMEOUT_MILLIS = 1000;
+
+  private final long byteBudget;
+  private final ExecutorService executor;
+  private final AtomicLong prefetchedBytes = new AtomicLong();
+  private final AtomicLong busyNanos = new AtomicLong();
+  // Reused by all the reads of each prefetching thread
+  private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[BUFFER_SIZE];
+    }
+  };
+
+  public VisualStudioFilePrefetcher(long byteBudget) {
+    this.byteBudget = byteBudget;
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "visualstudio-prefetcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+
+  public void prefetch(List<String> paths) {
+    final List<String> pathsCopy = ImmutableList.copyOf(paths);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.nanoTime();
+        try {
+          for (String path : pathsCopy) {
+            if (Thread.currentThread().isInterrupted() || prefetchedBytes.get() >= byteBudget) {
+              return;
+            }
+            read(new File(path));
+          }
+        } finally {
+          busyNanos.addAndGet(System.nanoTime() - start);
+        }
+      }
+    });
+  }
+
+  private void read(File file) {
+    byte[] buffer = buffers.get();
+
+    InputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      int read;
+      while (!Thread.currentThread().isInterrupted() && prefetchedBytes.get() < byteBudget && (read = in.read(buffer)) != -1) {
+        prefetchedBytes.addAndGet(read);
+      }
+    } catch (IOException e) {
+      // Prefetching is a best effort, the file will be read again by the sensors anyway
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Cancels the pending and ongoing reads, and waits for the prefetching thread to terminate.
+   */
+  public void stop() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long prefetchedBytes() {
+    return prefetchedBytes.get();
+  }
+
+  /**
+   * Time spent prefetching concurrently with the bootstrap.
+   */
+  public long busyNanos() {
+    return busyNanos.get();
+  }
+
+}
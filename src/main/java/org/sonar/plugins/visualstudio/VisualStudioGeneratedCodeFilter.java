@@ -0,0 +1,166 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.io.Closeables;
+import org.sonar.api.config.Settings;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.regex.Pattern;
+
+/**
+ * Excludes the generated and oversized files from the modules, so that the sensors do not spend time analyzing them.
+ * The checks are performed from the cheapest to the most expensive one:
+ * <ol>
+ *   <li>The &lt;AutoGen&gt;, &lt;DesignTime&gt; and &lt;DependentUpon&gt; metadata of the project item</li>
+ *   <li>The file name patterns</li>
+ *   <li>The file size</li>
+ *   <li>The presence of an "&lt;auto-generated&gt;" marker in the header of the file</li>
+ * </ol>
+ */
+public class VisualStudioGeneratedCodeFilter {
+
+  public enum Exclusion {
+    GENERATED, OVERSIZED
+  }
+
+  private static final int HEADER_SIZE = 1024;
+  private static final byte[] AUTO_PREFIX = "<auto".getBytes(Charsets.ISO_8859_1);
+  private static final byte[] GENERATED_SUFFIX = "generated".getBytes(Charsets.ISO_8859_1);
+  private static final ThreadLocal<byte[]> HEADER_BUFFER = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[HEADER_SIZE];
+    }
+  };
+
+  private final boolean enabled;
+  private final Pattern fileNamePattern;
+  private final long maxFileSize;
+
+  public VisualStudioGeneratedCodeFilter(Settings settings) {
+    this.enabled = settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY);
+    this.fileNamePattern = fileNamePattern(settings.getString(VisualStudioPlugin.VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY));
+    this.maxFileSize = settings.getLong(VisualStudioPlugin.VISUAL_STUDIO_MAX_FILE_SIZE_PROPERTY_KEY) * 1024;
+  }
+
+  /**
+   * @param isAutoGenerated whether the project item metadata flags the file as generated
+   * @return the reason why the file should be excluded, or null if it should be analyzed
+   */
+  @Nullable
+  public Exclusion exclusion(File file, boolean isAutoGenerated) {
+    if (!enabled) {
+      return null;
+    }
+
+    if (isAutoGenerated || (fileNamePattern != null && fileNamePattern.matcher(file.getName()).matches())) {
+      return Exclusion.GENERATED;
+    }
+    if (maxFileSize > 0 && file.length() > maxFileSize) {
+      return Exclusion.OVERSIZED;
+    }
+    if (hasAutoGeneratedHeader(file)) {
+      return Exclusion.GENERATED;
+    }
+
+    return null;
+  }
+
+  private static boolean hasAutoGeneratedHeader(File file) {
+    byte[] header = HEADER_BUFFER.get();
+    int length = 0;
+
+    InputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      int read;
+      while (length < header.length && (read = in.read(header, length, header.length - length)) != -1) {
+        length += read;
+      }
+    } catch (IOException e) {
+      return false;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+
+    return containsAutoGeneratedMarker(header, length);
+  }
+
+  /**
+   * Case-insensitive search of "&lt;auto-generated" or "&lt;autogenerated", directly on the bytes.
+   */
+  private static boolean containsAutoGeneratedMarker(byte[] bytes, int length) {
+    for (int i = 0; i < length; i++) {
+      if (regionMatches(bytes, length, i, AUTO_PREFIX)) {
+        int j = i + AUTO_PREFIX.length;
+        if (j < length && bytes[j] == '-') {
+          j++;
+        }
+        if (regionMatches(bytes, length, j, GENERATED_SUFFIX)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean regionMatches(byte[] bytes, int length, int offset, byte[] lowerCaseAscii) {
+    if (offset + lowerCaseAscii.length > length) {
+      return false;
+    }
+    for (int i = 0; i < lowerCaseAscii.length; i++) {
+      int b = bytes[offset + i];
+      if (b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      if (b != lowerCaseAscii[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Nullable
+  private static Pattern fileNamePattern(@Nullable String fileNamePatterns) {
+    if (fileNamePatterns == null) {
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (String fileNamePattern : Splitter.on(',').trimResults().omitEmptyStrings().split(fileNamePatterns)) {
+      sb.append(sb.length() == 0 ? "" : "|");
+      for (String part : Splitter.on('*').split(fileNamePattern)) {
+        sb.append(Pattern.quote(part)).append(".*");
+      }
+      sb.setLength(sb.length() - 2);
+    }
+
+    return sb.length() == 0 ? null : Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE);
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Throwables;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs file system metadata operations (existence checks, canonicalizations) concurrently, with a number of operations
+ * in flight adapted to the latency observed so far: on a local disk, where each operation takes microseconds, a few are
+ * enough, while on network storage, where each takes milliseconds, many more are needed to keep the same throughput.
+ * <p/>
+ * By Little's law, the concurrency is the product of the target throughput and of the moving average of the latency,
+ * bounded by the given minimum and maximum. {@link #submit(Runnable, int)} blocks while that many tasks are in flight,
+ * so that the pending operations never pile up in memory.
+ * <p/>
+ * Operations are submitted in batches of {@link #batchSize()} operations run one after the other, so that each task
+ * lasts about a millisecond: on a local disk, the cost of scheduling each operation on its own would exceed the cost
+ * of the operation itself.
+ */
+public class VisualStudioIoScheduler {
+
+  private static final double TARGET_OPERATIONS_PER_SECOND = 10000;
+  private static final int ADJUSTMENT_INTERVAL = 32;
+  private static final double LATENCY_SMOOTHING = 0.1;
+  private static final double TARGET_TASK_NANOS = 1000000;
+  private static final int INITIAL_BATCH_SIZE = 16;
+  private static final int MAX_BATCH_SIZE = 256;
+
+  private final int minConcurrency;
+  private final int maxConcurrency;
+  private final ExecutorService executor;
+  private final ReentrantLock lock = new ReentrantLock();
+  // Signaled once per completed task, to wake up the submitter waiting for it, if any
+  private final Condition taskCompleted = lock.newCondition();
+  private final Condition allTasksCompleted = lock.newCondition();
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private final long startNanos = System.nanoTime();
+
+  private int concurrency;
+  private int peakConcurrency;
+  private int inFlight;
+  private long tasks;
+  private long operations;
+  private double averageLatencyNanos = -1;
+  private Throwable failure;
+
+  public VisualStudioIoScheduler(int minConcurrency, int maxConcurrency) {
+    this.minConcurrency = Math.max(1, minConcurrency);
+    this.maxConcurrency = Math.max(this.minConcurrency, maxConcurrency);
+    this.concurrency = this.minConcurrency;
+    this.peakConcurrency = this.minConcurrency;
+    this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "visualstudio-io-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Submits a single operation.
+   */
+  public void submit(Runnable operation) {
+    submit(operation, 1);
+  }
+
+  /**
+   * Blocks until the task can be started without exceeding the current concurrency.
+   *
+   * @param operationsCount the number of operations run one after the other by the task, to measure their latency
+   */
+  public void submit(final Runnable task, final int operationsCount) {
+    lock.lock();
+    try {
+      while (inFlight >= concurrency && failure == null) {
+        await(taskCompleted);
+      }
+      rethrowFailure();
+      inFlight++;
+    } finally {
+      lock.unlock();
+    }
+
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.nanoTime();
+        Throwable taskFailure = null;
+        try {
+          task.run();
+        } catch (Throwable e) {
+          taskFailure = e;
+        } finally {
+          completed(operationsCount, System.nanoTime() - start, taskFailure);
+        }
+      }
+    });
+  }
+
+  /**
+   * Blocks until all the submitted tasks are completed, and rethrows the first failure, if any.
+   */
+  public void awaitCompletion() {
+    lock.lock();
+    try {
+      while (inFlight > 0) {
+        await(allTasksCompleted);
+      }
+      rethrowFailure();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void completed(int operationsCount, long elapsedNanos, Throwable taskFailure) {
+    lock.lock();
+    try {
+      inFlight--;
+      tasks++;
+      operations += operationsCount;
+      if (taskFailure != null && failure == null) {
+        failure = taskFailure;
+      }
+
+      double latencyNanos = (double) elapsedNanos / Math.max(1, operationsCount);
+      averageLatencyNanos = averageLatencyNanos < 0 ? latencyNanos : (averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos));
+      if (tasks % ADJUSTMENT_INTERVAL == 0) {
+        long target = Math.round(TARGET_OPERATIONS_PER_SECOND * averageLatencyNanos / 1000000000.0);
+        concurrency = (int) Math.max(minConcurrency, Math.min(maxConcurrency, target));
+        peakConcurrency = Math.max(peakConcurrency, concurrency);
+      }
+
+      if (failure != null) {
+        taskCompleted.signalAll();
+      } else {
+        taskCompleted.signal();
+      }
+      if (inFlight == 0) {
+        allTasksCompleted.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void await(Condition condition) {
+    try {
+      condition.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private void rethrowFailure() {
+    if (failure != null) {
+      throw Throwables.propagate(failure);
+    }
+  }
+
+  /**
+   * @return the number of operations to submit in each task, so that it lasts about a millisecond: up to hundreds on a
+   * local disk, and a single one on network storage, where the operations must rather run concurrently
+   */
+  public int batchSize() {
+    lock.lock();
+    try {
+      if (averageLatencyNanos < 0) {
+        return INITIAL_BATCH_SIZE;
+      }
+      return (int) Math.max(1, Math.min(MAX_BATCH_SIZE, Math.round(TARGET_TASK_NANOS / Math.max(1, averageLatencyNanos))));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the current number of tasks allowed in flight
+   */
+  public int concurrency() {
+    lock.lock();
+    try {
+      return concurrency;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int peakConcurrency() {
+    lock.lock();
+    try {
+      return peakConcurrency;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long operations() {
+    lock.lock();
+    try {
+      return operations;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long averageLatencyMicros() {
+    lock.lock();
+    try {
+      return averageLatencyNanos < 0 ? 0 : Math.round(averageLatencyNanos / 1000);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of operations completed per second since the creation of this scheduler
+   */
+  public long throughput() {
+    lock.lock();
+    try {
+      long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+      return Math.round(operations * 1000000000.0 / elapsedNanos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
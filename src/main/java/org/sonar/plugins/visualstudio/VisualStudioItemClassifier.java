@@ -0,0 +1,105 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.SonarException;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides, from its item type and extension, whether a project file is indexed as a source, as a test, or ignored.
+ * Rules have the form "ItemType=action" or "ItemType:.extension=action", the latter taking precedence.
+ * Files matching no rule are ignored.
+ */
+public class VisualStudioItemClassifier {
+
+  public enum Action {
+    SOURCE, TEST, IGNORE
+  }
+
+  private static final String ANY_EXTENSION = "*";
+
+  // Case-insensitive maps, so that looking up an action does not allocate
+  private final Map<String, Map<String, Action>> actions = Maps.newTreeMap(String.CASE_INSENSITIVE_ORDER);
+
+  public VisualStudioItemClassifier(Settings settings) {
+    String rules = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_ITEM_TYPE_ACTIONS_PROPERTY_KEY);
+    for (String rule : Splitter.on(',').trimResults().omitEmptyStrings().split(Strings.isNullOrEmpty(rules) ? VisualStudioPlugin.DEFAULT_ITEM_TYPE_ACTIONS : rules)) {
+      addRule(rule);
+    }
+  }
+
+  private void addRule(String rule) {
+    int equalsIndex = rule.indexOf('=');
+    if (equalsIndex == -1) {
+      throw invalidRule(rule);
+    }
+
+    String selector = rule.substring(0, equalsIndex).trim();
+    int colonIndex = selector.indexOf(':');
+    String itemType = colonIndex == -1 ? selector : selector.substring(0, colonIndex).trim();
+    String extension = colonIndex == -1 ? ANY_EXTENSION : selector.substring(colonIndex + 1).trim();
+
+    Action action;
+    try {
+      action = Action.valueOf(rule.substring(equalsIndex + 1).trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw invalidRule(rule);
+    }
+
+    Map<String, Action> extensionActions = actions.get(itemType);
+    if (extensionActions == null) {
+      extensionActions = Maps.newTreeMap(String.CASE_INSENSITIVE_ORDER);
+      actions.put(itemType, extensionActions);
+    }
+    extensionActions.put(extension, action);
+  }
+
+  private static SonarException invalidRule(String rule) {
+    return new SonarException("Invalid rule \"" + rule + "\" in the property \"" + VisualStudioPlugin.VISUAL_STUDIO_ITEM_TYPE_ACTIONS_PROPERTY_KEY
+      + "\": expected \"ItemType=action\" or \"ItemType:.extension=action\", where action is one of source, test or ignore.");
+  }
+
+  public Action action(String itemType, String filePath) {
+    Map<String, Action> extensionActions = actions.get(itemType);
+    if (extensionActions == null) {
+      return Action.IGNORE;
+    }
+
+    int dotIndex = filePath.lastIndexOf('.');
+    if (dotIndex > Math.max(filePath.lastIndexOf('\\'), filePath.lastIndexOf('/'))) {
+      for (Map.Entry<String, Action> entry : extensionActions.entrySet()) {
+        String extension = entry.getKey();
+        if (extension.length() == filePath.length() - dotIndex && filePath.regionMatches(true, dotIndex, extension, 0, extension.length())) {
+          return entry.getValue();
+        }
+      }
+    }
+
+    Action action = extensionActions.get(ANY_EXTENSION);
+    return action == null ? Action.IGNORE : action;
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+
+/**
+ * Normalizes paths without accessing the file system: both separators are accepted, "." and ".." segments are
+ * resolved, repeated and trailing separators are removed, and the Windows drive letters and UNC prefixes are kept as
+ * roots, which ".." segments never go above.
+ * <p/>
+ * Normalized paths use "/" as separator, e.g. "C:/Solution/Lib/Foo.cs" or "//server/share/Lib/Foo.cs". As long as no
+ * symbolic links are involved, the normalized path of an absolute path is the same as its canonical path.
+ */
+public final class VisualStudioLexicalPaths {
+
+  private VisualStudioLexicalPaths() {
+  }
+
+  public static String normalize(File file) {
+    return normalize(file.getAbsolutePath());
+  }
+
+  public static String normalize(String path) {
+    String s = path.replace('\\', '/');
+    int rootLength = rootLength(s);
+    boolean isUnc = rootLength > 2 && s.charAt(1) == '/';
+    boolean isAbsolute = isUnc || (rootLength > 0 && s.charAt(rootLength - 1) == '/');
+
+    StringBuilder sb = new StringBuilder(s.length());
+    if (isUnc) {
+      sb.append(s, 0, s.charAt(rootLength - 1) == '/' ? (rootLength - 1) : rootLength);
+    } else if (rootLength >= 2) {
+      // Drive letter
+      sb.append(Character.toUpperCase(s.charAt(0))).append(s, 1, rootLength);
+    } else {
+      sb.append(s, 0, rootLength);
+    }
+    int rootEnd = sb.length();
+
+    // Start in sb of each segment, to remove them on ".." segments
+    int[] starts = new int[16];
+    int depth = 0;
+    int start = rootLength;
+    for (int i = rootLength; i <= s.length(); i++) {
+      if (i == s.length() || s.charAt(i) == '/') {
+        if (isSegment(s, start, i, "..")) {
+          if (depth > 0 && !isSegment(sb, starts[depth - 1], sb.length(), "..")) {
+            depth--;
+            sb.setLength(depth == 0 ? rootEnd : (starts[depth] - 1));
+          } else if (!isAbsolute) {
+            starts = append(sb, s, start, i, depth, starts, isUnc);
+            depth++;
+          }
+        } else if (i > start && !isSegment(s, start, i, ".")) {
+          starts = append(sb, s, start, i, depth, starts, isUnc);
+          depth++;
+        }
+        start = i + 1;
+      }
+    }
+
+    return sb.length() == 0 ? "." : sb.toString();
+  }
+
+  private static int[] append(StringBuilder sb, String s, int start, int end, int depth, int[] starts, boolean isUnc) {
+    int[] result = starts;
+    if (depth == result.length) {
+      result = new int[starts.length * 2];
+      System.arraycopy(starts, 0, result, 0, starts.length);
+    }
+
+    if (depth > 0 || isUnc) {
+      sb.append('/');
+    }
+    result[depth] = sb.length();
+    sb.append(s, start, end);
+    return result;
+  }
+
+  private static boolean isSegment(CharSequence s, int start, int end, String segment) {
+    if (end - start != segment.length()) {
+      return false;
+    }
+    for (int i = 0; i < segment.length(); i++) {
+      if (s.charAt(start + i) != segment.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the length of the root of the path with "/" separators: "//server/share/", "C:/", "C:", "/" or none
+   */
+  private static int rootLength(String s) {
+    if (s.length() > 2 && s.charAt(0) == '/' && s.charAt(1) == '/' && s.charAt(2) != '/') {
+      int server = s.indexOf('/', 2);
+      if (server == -1) {
+        return s.length();
+      }
+      int share = s.indexOf('/', server + 1);
+      return share == -1 ? s.length() : (share + 1);
+    } else if (s.length() >= 2 && s.charAt(1) == ':' && isDriveLetter(s.charAt(0))) {
+      return s.length() >= 3 && s.charAt(2) == '/' ? 3 : 2;
+    } else if (s.startsWith("/")) {
+      return 1;
+    }
+    return 0;
+  }
+
+  private static boolean isDriveLetter(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+  }
+
+  /**
+   * @return true if the normalized path is absolute, or relative but going up above the directory it is relative to
+   */
+  public static boolean isOutside(String normalizedPath) {
+    return rootLength(normalizedPath) > 0 || "..".equals(normalizedPath) || normalizedPath.startsWith("../");
+  }
+
+  /**
+   * @return true if the normalized path is strictly within the normalized directory
+   */
+  public static boolean isInDir(String path, String dir) {
+    return path.length() > dir.length() && path.startsWith(dir) && (dir.endsWith("/") || path.charAt(dir.length()) == '/');
+  }
+
+  /**
+   * @return the deepest directory containing the normalized path, which is the normalized directory or one of its
+   * ancestors, or null if they have no common root
+   */
+  @Nullable
+  public static String commonDir(String path, String dir) {
+    String result = dir;
+    while (!result.equals(path) && !isInDir(path, result)) {
+      int rootLength = rootLength(result);
+      if (result.length() <= rootLength) {
+        return null;
+      }
+      int i = result.lastIndexOf('/');
+      if (i >= rootLength) {
+        result = result.substring(0, i);
+      } else {
+        // Without the trailing separator of UNC roots, as normalized
+        boolean isUnc = rootLength > 2 && result.charAt(1) == '/';
+        result = result.substring(0, isUnc ? (rootLength - 1) : rootLength);
+      }
+    }
+    return result;
+  }
+
+}
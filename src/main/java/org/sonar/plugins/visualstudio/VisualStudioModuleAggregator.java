@@ -0,0 +1,237 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the modules of the small projects sharing the same name prefix, such as "Company.Contracts.Orders" and
+ * "Company.Contracts.Invoices", into a single module, to save the fixed cost of analyzing each module.
+ * <p/>
+ * Source and test projects are never merged together, and neither are projects configuring the FxCop, StyleCop or
+ * ReSharper analyses differently, such as with their own FxCop assembly, as those analyses could not be run on the
+ * merged module.
+ * <p/>
+ * Other properties having the same value in all the merged projects are kept as is, while project specific ones are
+ * only kept under the {@link #AGGREGATED_PROPERTY_PREFIX}&lt;project&gt;. prefix, along with the files of each project,
+ * so that no project specific setting is wrongly applied to the whole merged module. No sensor reads those prefixed
+ * properties, which is logged as a warning for each merged module.
+ */
+public class VisualStudioModuleAggregator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VisualStudioModuleAggregator.class);
+
+  public static final String AGGREGATED_PROJECTS_PROPERTY_KEY = "sonar.visualstudio.aggregatedProjects";
+  public static final String AGGREGATED_PROPERTY_PREFIX = "sonar.visualstudio.aggregated.";
+
+  private static final Set<String> MODULE_PROPERTY_KEYS = ImmutableSet.of(
+    "sonar.projectKey", "sonar.projectName", ProjectDefinition.SOURCES_PROPERTY, ProjectDefinition.TESTS_PROPERTY);
+
+  private final int maxFiles;
+
+  public VisualStudioModuleAggregator(int maxFiles) {
+    this.maxFiles = maxFiles;
+  }
+
+  /**
+   * @return the modules, where the ones of at most {@link #maxFiles} files are replaced by the merged modules
+   */
+  public List<ProjectDefinition> aggregate(ProjectDefinition solutionProject, List<ProjectDefinition> modules) {
+    Map<String, List<ProjectDefinition>> groups = Maps.newLinkedHashMap();
+    List<Object> slots = Lists.newArrayList();
+
+    for (ProjectDefinition module : modules) {
+      int filesCount = module.sources().size() + module.tests().size();
+      if (filesCount > maxFiles) {
+        slots.add(module);
+      } else {
+        String groupName = groupName(module);
+        List<ProjectDefinition> group = groups.get(groupName);
+        if (group == null) {
+          group = Lists.newArrayList();
+          groups.put(groupName, group);
+          slots.add(groupName);
+        }
+        group.add(module);
+      }
+    }
+
+    List<ProjectDefinition> result = Lists.newArrayList();
+    for (Object slot : slots) {
+      if (slot instanceof ProjectDefinition) {
+        result.add((ProjectDefinition) slot);
+      } else {
+        String groupName = (String) slot;
+        int mergedGroups = 0;
+        for (List<ProjectDefinition> members : byAnalyzerProperties(groups.get(groupName))) {
+          if (members.size() == 1) {
+            result.add(members.get(0));
+          } else {
+            mergedGroups++;
+            result.add(merge(solutionProject, mergedGroups == 1 ? groupName : (groupName + " " + mergedGroups), members));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the modules of the group, split by their analyzer specific properties, each split in the order of the modules
+   */
+  private static Collection<List<ProjectDefinition>> byAnalyzerProperties(List<ProjectDefinition> group) {
+    Map<Map<String, String>, List<ProjectDefinition>> result = Maps.newLinkedHashMap();
+    for (ProjectDefinition module : group) {
+      Map<String, String> analyzerProperties = Maps.newHashMap();
+      for (String key : module.getProperties().stringPropertyNames()) {
+        if (isAnalyzerProperty(key)) {
+          analyzerProperties.put(key, module.getProperties().getProperty(key));
+        }
+      }
+
+      List<ProjectDefinition> members = result.get(analyzerProperties);
+      if (members == null) {
+        members = Lists.newArrayList();
+        result.put(analyzerProperties, members);
+      }
+      members.add(module);
+    }
+    return result.values();
+  }
+
+  private static boolean isAnalyzerProperty(String key) {
+    return key.endsWith(".fxcop.assembly") || key.startsWith("sonar.stylecop.") || key.startsWith("sonar.resharper.");
+  }
+
+  private static String groupName(ProjectDefinition module) {
+    String name = module.getName();
+    int i = name.lastIndexOf('.');
+    String prefix = i == -1 ? "Projects" : name.substring(0, i);
+    return isTestModule(module) ? (prefix + " Tests") : prefix;
+  }
+
+  private static boolean isTestModule(ProjectDefinition module) {
+    return module.sources().isEmpty() && !module.tests().isEmpty();
+  }
+
+  private static ProjectDefinition merge(ProjectDefinition solutionProject, String groupName, List<ProjectDefinition> members) {
+    ProjectDefinition first = members.get(0);
+    String escapedGroupName = VisualStudioProjectBuilder.escapeProjectName(groupName) + "_Group";
+
+    ProjectDefinition module = ProjectDefinition.create()
+      .setKey(first.getKey().substring(0, first.getKey().lastIndexOf(':') + 1) + escapedGroupName)
+      .setName(groupName + " (" + members.size() + " projects)");
+    module.setBaseDir(commonAncestor(members));
+    module.setWorkDir(new File(first.getWorkDir().getParentFile(), solutionProject.getKey().replace(':', '_') + "_" + escapedGroupName));
+
+    List<String> memberNames = Lists.newArrayList();
+    for (ProjectDefinition member : members) {
+      memberNames.add(member.getName());
+      module.addSources(member.sources().toArray(new String[0]));
+      module.addTests(member.tests().toArray(new String[0]));
+    }
+    module.setProperty(AGGREGATED_PROJECTS_PROPERTY_KEY, Joiner.on(',').join(memberNames));
+
+    Set<String> keys = Sets.newTreeSet();
+    for (ProjectDefinition member : members) {
+      keys.addAll(member.getProperties().stringPropertyNames());
+    }
+    keys.removeAll(MODULE_PROPERTY_KEYS);
+
+    Map<String, List<String>> droppedProperties = Maps.newLinkedHashMap();
+    for (String key : keys) {
+      String commonValue = first.getProperties().getProperty(key);
+      for (ProjectDefinition member : members) {
+        if (commonValue != null && !commonValue.equals(member.getProperties().getProperty(key))) {
+          commonValue = null;
+        }
+      }
+
+      if (commonValue != null) {
+        module.setProperty(key, commonValue);
+      } else {
+        List<String> projectNames = Lists.newArrayList();
+        for (ProjectDefinition member : members) {
+          String value = member.getProperties().getProperty(key);
+          if (value != null) {
+            module.setProperty(AGGREGATED_PROPERTY_PREFIX + member.getName() + "." + key, value);
+            projectNames.add(member.getName());
+          }
+        }
+        droppedProperties.put(key, projectNames);
+      }
+    }
+    logDroppedProperties(module, droppedProperties);
+
+    for (ProjectDefinition member : members) {
+      List<String> files = Lists.newArrayList(member.sources());
+      files.addAll(member.tests());
+      module.setProperty(AGGREGATED_PROPERTY_PREFIX + member.getName() + ".files", Joiner.on(',').join(files));
+    }
+
+    return module;
+  }
+
+  private static void logDroppedProperties(ProjectDefinition module, Map<String, List<String>> droppedProperties) {
+    if (droppedProperties.isEmpty()) {
+      return;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, List<String>> entry : droppedProperties.entrySet()) {
+      sb.append(sb.length() == 0 ? "" : "; ").append(entry.getKey()).append(" of ").append(Joiner.on(", ").join(entry.getValue()));
+    }
+    LOG.warn("The analyses configured by the following project specific properties are not run on the merged module \"" + module.getName()
+      + "\": " + sb + ". Set the property \"" + VisualStudioPlugin.VISUAL_STUDIO_AGGREGATION_MAX_FILES_PROPERTY_KEY + "\" to 0 to analyze each project on its own.");
+  }
+
+  private static File commonAncestor(List<ProjectDefinition> members) {
+    File result = members.get(0).getBaseDir().getAbsoluteFile();
+    for (ProjectDefinition member : members) {
+      while (!isAncestor(result, member.getBaseDir().getAbsoluteFile())) {
+        result = result.getParentFile();
+      }
+    }
+    return result;
+  }
+
+  private static boolean isAncestor(File ancestor, File file) {
+    for (File current = file; current != null; current = current.getParentFile()) {
+      if (current.equals(ancestor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps the absolute paths of the files of the modules to the key of their module, for the importers of the reports of
+ * external tools, which would otherwise scan every module or canonicalize each path of their reports.
+ * <p/>
+ * The paths are stored in a trie of path segments, so that a lookup only walks the segments of the given path, which
+ * is normalized first: both separators are accepted, "." and ".." segments are resolved, and each remaining segment is
+ * matched regardless of its case when it does not match as written and no other case variant exists.
+ * <p/>
+ * The index is not modified once built, and can be written to a file for the tools running outside of the analysis.
+ */
+public class VisualStudioPathIndex {
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final List<String> moduleKeys = Lists.newArrayList();
+  private final Map<String, Integer> moduleIndexes = Maps.newHashMap();
+  private final Node root = new Node();
+  private int size;
+
+  public void add(String path, String moduleKey) {
+    Integer moduleIndex = moduleIndexes.get(moduleKey);
+    if (moduleIndex == null) {
+      moduleIndex = moduleKeys.size();
+      moduleKeys.add(moduleKey);
+      moduleIndexes.put(moduleKey, moduleIndex);
+    }
+
+    List<Node> nodes = Lists.newArrayList();
+    nodes.add(root);
+    int start = 0;
+    for (int i = 0; i <= path.length(); i++) {
+      if (i == path.length() || path.charAt(i) == '/' || path.charAt(i) == '\\') {
+        String segment = path.substring(start, i);
+        start = i + 1;
+        if ("..".equals(segment)) {
+          if (nodes.size() > 1) {
+            nodes.remove(nodes.size() - 1);
+          }
+        } else if (!segment.isEmpty() && !".".equals(segment)) {
+          nodes.add(nodes.get(nodes.size() - 1).child(segment));
+        }
+      }
+    }
+
+    Node node = nodes.get(nodes.size() - 1);
+    if (node.moduleIndex == -1) {
+      size++;
+    }
+    node.moduleIndex = moduleIndex;
+  }
+
+  /**
+   * @return the key of the module of the file, or null if the path is not the one of a file of a module
+   */
+  @Nullable
+  public String moduleKey(String path) {
+    // The bounds of the segments left once "." and ".." are resolved: the intermediate segments of "obj/../Foo.cs" need
+    // not be indexed
+    int[] bounds = new int[16];
+    int count = 0;
+    int start = 0;
+    for (int i = 0; i <= path.length(); i++) {
+      if (i == path.length() || path.charAt(i) == '/' || path.charAt(i) == '\\') {
+        int length = i - start;
+        if (length == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.') {
+          count = Math.max(0, count - 1);
+        } else if (length > 0 && !(length == 1 && path.charAt(start) == '.')) {
+          if (2 * count == bounds.length) {
+            int[] grown = new int[bounds.length * 2];
+            System.arraycopy(bounds, 0, grown, 0, bounds.length);
+            bounds = grown;
+          }
+          bounds[2 * count] = start;
+          bounds[2 * count + 1] = i;
+          count++;
+        }
+        start = i + 1;
+      }
+    }
+
+    Node node = root;
+    for (int i = 0; i < count; i++) {
+      node = node.lookup(path.substring(bounds[2 * i], bounds[2 * i + 1]));
+      if (node == null) {
+        return null;
+      }
+    }
+    return node.moduleIndex == -1 ? null : moduleKeys.get(node.moduleIndex);
+  }
+
+  /**
+   * @return the number of indexed paths
+   */
+  public int size() {
+    return size;
+  }
+
+  public void write(File file) throws IOException {
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(size);
+      out.writeInt(moduleKeys.size());
+      for (String moduleKey : moduleKeys) {
+        out.writeUTF(moduleKey);
+      }
+      root.write(out);
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+  }
+
+  public static VisualStudioPathIndex read(File file) throws IOException {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported format version of the path index " + file.getAbsolutePath());
+      }
+
+      VisualStudioPathIndex index = new VisualStudioPathIndex();
+      index.size = in.readInt();
+      int moduleKeysCount = in.readInt();
+      for (int i = 0; i < moduleKeysCount; i++) {
+        String moduleKey = in.readUTF();
+        index.moduleIndexes.put(moduleKey, i);
+        index.moduleKeys.add(moduleKey);
+      }
+      index.root.read(in);
+      return index;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  private static class Node {
+
+    // Marks the folded segments of several case variants, only matched as written
+    private static final Node AMBIGUOUS = new Node();
+
+    private Map<String, Node> children;
+    private Map<String, Node> foldedChildren;
+    private int moduleIndex = -1;
+
+    public Node child(String segment) {
+      Node child = children == null ? null : children.get(segment);
+      if (child == null) {
+        child = new Node();
+        addChild(segment, child);
+      }
+      return child;
+    }
+
+    private void addChild(String segment, Node child) {
+      if (children == null) {
+        children = Maps.newHashMap();
+        foldedChildren = Maps.newHashMap();
+      }
+      children.put(segment, child);
+
+      String foldedSegment = segment.toLowerCase(Locale.ENGLISH);
+      foldedChildren.put(foldedSegment, foldedChildren.containsKey(foldedSegment) ? AMBIGUOUS : child);
+    }
+
+    @Nullable
+    public Node lookup(String segment) {
+      if (children == null) {
+        return null;
+      }
+
+      Node child = children.get(segment);
+      if (child == null) {
+        child = foldedChildren.get(segment.toLowerCase(Locale.ENGLISH));
+      }
+      return child == AMBIGUOUS ? null : child;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+      out.writeInt(moduleIndex);
+      out.writeInt(children == null ? 0 : children.size());
+      if (children != null) {
+        for (Map.Entry<String, Node> entry : children.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+      }
+    }
+
+    public void read(DataInputStream in) throws IOException {
+      moduleIndex = in.readInt();
+      int childrenCount = in.readInt();
+      for (int i = 0; i < childrenCount; i++) {
+        String segment = in.readUTF();
+        Node child = new Node();
+        child.read(in);
+        addChild(segment, child);
+      }
+    }
+
+  }
+
+}
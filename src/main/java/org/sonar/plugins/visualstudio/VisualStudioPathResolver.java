@@ -0,0 +1,140 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the paths of project files and items, which are case-insensitive on Windows, where those projects are
+ * written. When the path does not exist as is, e.g. "Foo\Bar.CS" on a case-sensitive file system holding "foo/Bar.cs",
+ * each of its segments is looked up in a case-folded index of its directory.
+ * <p/>
+ * Each directory is listed at most once, and its index shared by all the projects of the build.
+ */
+public class VisualStudioPathResolver {
+
+  private final boolean caseInsensitive;
+  private final ConcurrentMap<File, Map<String, String>> directoryIndexes = Maps.newConcurrentMap();
+  private final ConcurrentMap<File, File> correctedFiles = Maps.newConcurrentMap();
+
+  public VisualStudioPathResolver(boolean caseInsensitive) {
+    this.caseInsensitive = caseInsensitive;
+  }
+
+  /**
+   * @param relativePath a path relative to the directory, with either '/' or '\' separators
+   * @return the existing file matching the path regardless of its case, or the file of the path as is if there is none
+   */
+  public File resolve(File dir, String relativePath) {
+    File file = new File(dir, relativePath.replace('\\', '/'));
+    if (!caseInsensitive || file.exists()) {
+      return file;
+    }
+
+    File corrected = correctCase(dir, relativePath);
+    return corrected == null ? file : corrected;
+  }
+
+  /**
+   * To be called once the file of the path as is was found not to exist, which is not checked again.
+   *
+   * @return the existing file matching the path once the case of its segments is corrected, or null if there is none
+   *   or paths are case-sensitive
+   */
+  @Nullable
+  public File correctCase(File dir, String relativePath) {
+    if (!caseInsensitive) {
+      return null;
+    }
+
+    File file = new File(dir, relativePath.replace('\\', '/'));
+    File corrected = correctedFiles.get(file);
+    if (corrected != null) {
+      return corrected;
+    }
+
+    File current = dir;
+    boolean isCorrected = false;
+    for (String segment : relativePath.replace('\\', '/').split("/")) {
+      if (segment.isEmpty() || ".".equals(segment)) {
+        continue;
+      } else if ("..".equals(segment)) {
+        current = new File(current, segment);
+      } else {
+        File child = new File(current, segment);
+        if (!child.exists()) {
+          String actualName = directoryIndex(current).get(segment.toLowerCase(Locale.ENGLISH));
+          if (actualName == null) {
+            return null;
+          }
+          child = new File(current, actualName);
+          isCorrected = true;
+        }
+        current = child;
+      }
+    }
+
+    if (!isCorrected) {
+      // Exists as is, e.g. a directory
+      return null;
+    }
+    correctedFiles.putIfAbsent(file, current);
+    return current;
+  }
+
+  /**
+   * @return the number of distinct paths resolved to a file of a different case
+   */
+  public int correctedPaths() {
+    return correctedFiles.size();
+  }
+
+  private Map<String, String> directoryIndex(File dir) {
+    Map<String, String> index = directoryIndexes.get(dir);
+    if (index == null) {
+      index = Maps.newHashMap();
+      String[] names = dir.list();
+      if (names != null) {
+        // Sorted, so that the same entry wins when several differ only by their case
+        Arrays.sort(names);
+        for (String name : names) {
+          String key = name.toLowerCase(Locale.ENGLISH);
+          if (!index.containsKey(key)) {
+            index.put(key, name);
+          }
+        }
+      }
+      Map<String, String> previous = directoryIndexes.putIfAbsent(dir, index);
+      if (previous != null) {
+        index = previous;
+      }
+    }
+    return index;
+  }
+
+}
@@ -34,6 +34,35 @@ public class VisualStudioPlugin extends SonarPlugin {
   public static final String VISUAL_STUDIO_OUTPUT_PATHS_PROPERTY_KEY = "sonar.visualstudio.outputPaths";
   public static final String VISUAL_STUDIO_TEST_PROJECT_PATTERN = "sonar.visualstudio.testProjectPattern";
   public static final String VISUAL_STUDIO_SKIPPED_PROJECTS = "sonar.visualstudio.skippedProjects";
+  public static final String VISUAL_STUDIO_HASH_FILES_PROPERTY_KEY = "sonar.visualstudio.hashFiles";
+  public static final String VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY = "sonar.visualstudio.pullRequest.changedFiles";
+  public static final String VISUAL_STUDIO_CHANGED_FILES_PATH_PROPERTY_KEY = "sonar.visualstudio.pullRequest.changedFilesPath";
+  public static final String VISUAL_STUDIO_VERBOSE_PROPERTY_KEY = "sonar.visualstudio.verbose";
+  public static final String VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY = "sonar.visualstudio.excludeGeneratedCode";
+  public static final String VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY = "sonar.visualstudio.generatedFilePatterns";
+  public static final String VISUAL_STUDIO_MAX_FILE_SIZE_PROPERTY_KEY = "sonar.visualstudio.maxFileSize";
+  public static final String VISUAL_STUDIO_ITEM_TYPE_ACTIONS_PROPERTY_KEY = "sonar.visualstudio.itemTypeActions";
+  public static final String VISUAL_STUDIO_PREFETCH_BUDGET_PROPERTY_KEY = "sonar.visualstudio.prefetchBudget";
+  public static final String VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY = "sonar.visualstudio.shardCount";
+  public static final String VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY = "sonar.visualstudio.shardIndex";
+  public static final String VISUAL_STUDIO_PRINT_SHARD_PLAN_PROPERTY_KEY = "sonar.visualstudio.printShardPlan";
+  public static final String VISUAL_STUDIO_AGGREGATION_MAX_FILES_PROPERTY_KEY = "sonar.visualstudio.aggregation.maxFiles";
+  public static final String VISUAL_STUDIO_TRACE_PROPERTY_KEY = "sonar.visualstudio.trace";
+  public static final String VISUAL_STUDIO_SOURCE_PATTERNS_PROPERTY_KEY = "sonar.visualstudio.sourcePatterns";
+  public static final String VISUAL_STUDIO_REMOTE_CACHE_URL_PROPERTY_KEY = "sonar.visualstudio.remoteCache.url";
+  public static final String VISUAL_STUDIO_REMOTE_CACHE_TIMEOUT_PROPERTY_KEY = "sonar.visualstudio.remoteCache.timeout";
+  public static final String VISUAL_STUDIO_CASE_SENSITIVE_PATHS_PROPERTY_KEY = "sonar.visualstudio.caseSensitivePaths";
+  public static final String VISUAL_STUDIO_EVALUATED_PROJECTS_MANIFEST_PROPERTY_KEY = "sonar.visualstudio.evaluatedProjectsManifest";
+  public static final String VISUAL_STUDIO_MAX_CONCURRENT_IO_PROPERTY_KEY = "sonar.visualstudio.maxConcurrentIo";
+  public static final String VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY = "sonar.visualstudio.deferredVerification";
+  public static final String VISUAL_STUDIO_DEFERRED_VERIFICATION_MAX_DISCREPANCIES_PROPERTY_KEY = "sonar.visualstudio.deferredVerification.maxDiscrepancies";
+  public static final String VISUAL_STUDIO_WEB_SITE_EXTENSIONS_PROPERTY_KEY = "sonar.visualstudio.webSite.extensions";
+
+  public static final String DEFAULT_ITEM_TYPE_ACTIONS = "Compile=source,Content:.js=source,Content:.ts=source";
+  public static final int DEFAULT_REMOTE_CACHE_TIMEOUT = 2000;
+  public static final int DEFAULT_MAX_CONCURRENT_IO = 64;
+  public static final int DEFAULT_DEFERRED_VERIFICATION_MAX_DISCREPANCIES = 100;
+  public static final String DEFAULT_WEB_SITE_EXTENSIONS = ".cs,.vb,.js,.ts";
 
   public static final String VISUAL_STUDIO_OLD_OUTPUT_PATH_PROPERTY_KEY = "sonar.visualstudio.outputPath";
   public static final String VISUAL_STUDIO_OLD_SOLUTION_PROPERTY_KEY = "sonar.dotnet.visualstudio.solution.file";
@@ -48,6 +77,7 @@ public class VisualStudioPlugin extends SonarPlugin {
   public List getExtensions() {
     return ImmutableList.of(
       VisualStudioProjectBuilder.class,
+      VisualStudioSolutionModel.class,
 
       PropertyDefinition
         .builder(VISUAL_STUDIO_SOLUTION_PROPERTY_KEY)
@@ -91,6 +121,223 @@ public class VisualStudioPlugin extends SonarPlugin {
         .description("Comma-separated list of project names to skip.")
         .onlyOnQualifiers(Qualifiers.PROJECT)
         .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_HASH_FILES_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Hash files")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to compare the content hash of every file with the previous analysis, to flag the changed files and unchanged modules.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Pull request changed files")
+        .description("Comma-separated list of the files changed by the pull request, absolute or relative to the solution directory. "
+          + "When set, only the projects affected by those files, directly or through project references, are analyzed.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_CHANGED_FILES_PATH_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Pull request changed files list")
+        .description("Path to a file listing, one per line, the files changed by the pull request. Same behavior as the \"Pull request changed files\" property.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_VERBOSE_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Verbose diagnostics")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to write every skipped file and rejected assembly candidate to \"visualstudio-diagnostics.txt\" in the working directory. "
+          + "Only a summary is logged otherwise.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Exclude generated code")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to exclude the generated files and the files larger than the maximum file size from the analysis. "
+          + "The header of every file not excluded by its project item metadata, name or size is read to find an \"<auto-generated>\" marker.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Generated file patterns")
+        .defaultValue("*.Designer.cs,*.Designer.vb,*.g.cs,*.g.i.cs,*.g.vb,*.g.i.vb,*.generated.cs,Reference.cs,Reference.vb,TemporaryGeneratedFile_*")
+        .description("Comma-separated list of case-insensitive file name patterns, where \"*\" matches any sequence of characters, of the generated files to exclude. "
+          + "Files flagged as generated by their project item metadata or by an \"<auto-generated>\" header are excluded as well.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_MAX_FILE_SIZE_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Maximum file size")
+        .defaultValue("0")
+        .type(PropertyType.INTEGER)
+        .description("Size in KB above which files are excluded from the analysis. 0 means no limit.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_ITEM_TYPE_ACTIONS_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Item type actions")
+        .defaultValue(DEFAULT_ITEM_TYPE_ACTIONS)
+        .description("Comma-separated list of \"ItemType=action\" or \"ItemType:.extension=action\" rules telling whether the project items are indexed "
+          + "as \"source\", as \"test\" or are ignored with \"ignore\". Items matching no rule are ignored. "
+          + "Sources of test projects are indexed as tests.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_PREFETCH_BUDGET_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Prefetch budget")
+        .defaultValue("0")
+        .type(PropertyType.INTEGER)
+        .description("Maximum number of MB of source files to read in the background during the bootstrap, to warm up the page cache before the analysis. "
+          + "0 disables prefetching.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Shard count")
+        .defaultValue("1")
+        .type(PropertyType.INTEGER)
+        .description("Number of shards, typically CI agents, the projects of the solution are split into. "
+          + "Only the projects of the shard given by the \"Shard index\" property are analyzed.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Shard index")
+        .defaultValue("0")
+        .type(PropertyType.INTEGER)
+        .description("Index, starting at 0, of the shard to analyze.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_PRINT_SHARD_PLAN_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Print shard plan")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to log the projects of every shard.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_AGGREGATION_MAX_FILES_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Small projects aggregation threshold")
+        .defaultValue("0")
+        .type(PropertyType.INTEGER)
+        .description("Projects with at most this number of files are merged into a single module per name prefix, e.g. \"Company.Contracts\" for "
+          + "\"Company.Contracts.Orders\", to save the fixed analysis cost of each module. Projects with different FxCop, StyleCop or ReSharper "
+          + "properties, such as their own assembly or project file, are not merged, as those analyses could not run on the merged module. "
+          + "0 disables the aggregation.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_TRACE_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Trace events")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to record the duration of every bootstrap phase and project, and write them to \"visualstudio-trace.json\" in the "
+          + "working directory. This file can be opened in chrome://tracing or Perfetto.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_SOURCE_PATTERNS_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Declare sources by patterns")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to declare the files of the large projects by their directory plus inclusion and exclusion patterns, "
+          + "rather than by listing each of them, when those patterns select exactly the same files. "
+          + "Ignored when inclusions or exclusions are set.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_REMOTE_CACHE_URL_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Remote project cache URL")
+        .description("URL of a cache of parsed projects shared by several build agents, e.g. \"http://cache:8080/\". "
+          + "Projects are parsed locally when it is not set or not reachable.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_REMOTE_CACHE_TIMEOUT_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Remote project cache timeout")
+        .defaultValue(Integer.toString(DEFAULT_REMOTE_CACHE_TIMEOUT))
+        .type(PropertyType.INTEGER)
+        .description("Connection and read timeout in milliseconds of the remote project cache, after which it is no longer used until the end of the analysis.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_CASE_SENSITIVE_PATHS_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Case-sensitive paths")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to only use the paths of the project files and items as written. When false, paths not found as written, "
+          + "e.g. \"Foo\\Bar.CS\" for \"foo/Bar.cs\" on a case-sensitive file system, are resolved regardless of their case.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_EVALUATED_PROJECTS_MANIFEST_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Evaluated projects manifest")
+        .description("Path to a file listing the projects as evaluated by MSBuild, one JSON object per line, e.g. "
+          + "{\"project\": \"Lib/Lib.csproj\", \"compileItems\": [\"Foo.cs\"], \"projectReferences\": [], \"targetPath\": \"bin/Debug/Lib.dll\", "
+          + "\"configuration\": \"Debug\", \"platform\": \"AnyCPU\"}. The projects listed there are not parsed.")
+        .onlyOnQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_MAX_CONCURRENT_IO_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Maximum concurrent file system operations")
+        .defaultValue(Integer.toString(DEFAULT_MAX_CONCURRENT_IO))
+        .type(PropertyType.INTEGER)
+        .description("Upper bound of the number of concurrent file system operations used to resolve the project items. The actual number "
+          + "grows with the observed latency, so that workspaces on network storage are not resolved one file at a time.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Deferred verification")
+        .defaultValue("false")
+        .type(PropertyType.BOOLEAN)
+        .description("Whether or not to declare the files as listed in the projects, and to verify them in the background, e.g. on clean checkouts "
+          + "where all of them exist. The files not passing the verification are removed from the modules before the analysis starts.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_DEFERRED_VERIFICATION_MAX_DISCREPANCIES_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Deferred verification maximum discrepancies")
+        .defaultValue(Integer.toString(DEFAULT_DEFERRED_VERIFICATION_MAX_DISCREPANCIES))
+        .type(PropertyType.INTEGER)
+        .description("Maximum number of missing or misplaced files found by the deferred verification, above which the analysis fails.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition
+        .builder(VISUAL_STUDIO_WEB_SITE_EXTENSIONS_PROPERTY_KEY)
+        .category(CATEGORY)
+        .name("Web site file extensions")
+        .defaultValue(DEFAULT_WEB_SITE_EXTENSIONS)
+        .description("Comma-separated list of the extensions of the files to analyze in web site projects, which have no project file listing them. "
+          + "The \"bin\", \"obj\", \"node_modules\" and \"packages\" directories of the web sites are skipped.")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
 
       deprecatedPropertyDefinition(VISUAL_STUDIO_OLD_SOLUTION_PROPERTY_KEY),
       deprecatedPropertyDefinition(VISUAL_STUDIO_OLD_BUILD_CONFIGURATION_PROPERTY_KEY),
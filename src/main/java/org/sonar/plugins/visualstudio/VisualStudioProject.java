@@ -19,9 +19,15 @@
  */
 package org.sonar.plugins.visualstudio;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
 import javax.annotation.Nullable;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * All information related to Visual Studio projects which can be extracted only from a project file.
@@ -34,13 +40,27 @@ public class VisualStudioProject {
   private final String assemblyName;
   private final List<String> propertyGroupConditions;
   private final List<String> outputPaths;
+  private final List<String> projectReferences;
+  private final Set<String> linkedFiles;
+  private final Set<String> autoGeneratedFiles;
+  private final Map<String, String> itemTypes;
 
   public VisualStudioProject(List<String> files, @Nullable String outputType, @Nullable String assemblyName, List<String> propertyGroupConditions, List<String> outputPaths) {
+    this(files, outputType, assemblyName, propertyGroupConditions, outputPaths, ImmutableList.<String>of(), ImmutableSet.<String>of(), ImmutableSet.<String>of(),
+      ImmutableMap.<String, String>of());
+  }
+
+  public VisualStudioProject(List<String> files, @Nullable String outputType, @Nullable String assemblyName, List<String> propertyGroupConditions, List<String> outputPaths,
+    List<String> projectReferences, Set<String> linkedFiles, Set<String> autoGeneratedFiles, Map<String, String> itemTypes) {
     this.files = files;
     this.outputType = outputType;
     this.assemblyName = assemblyName;
     this.propertyGroupConditions = propertyGroupConditions;
     this.outputPaths = outputPaths;
+    this.projectReferences = projectReferences;
+    this.linkedFiles = linkedFiles;
+    this.autoGeneratedFiles = autoGeneratedFiles;
+    this.itemTypes = itemTypes;
   }
 
   public List<String> files() {
@@ -65,4 +85,34 @@ public class VisualStudioProject {
     return outputPaths;
   }
 
+  /**
+   * Paths, relative to the project file, of the projects referenced through &lt;ProjectReference&gt; items.
+   */
+  public List<String> projectReferences() {
+    return projectReferences;
+  }
+
+  /**
+   * Subset of {@link #files()} added as links, i.e. which may be located outside of the project directory.
+   */
+  public Set<String> linkedFiles() {
+    return linkedFiles;
+  }
+
+  /**
+   * Subset of {@link #files()} flagged as generated by their &lt;AutoGen&gt;, &lt;DesignTime&gt; or &lt;DependentUpon&gt; metadata.
+   */
+  public Set<String> autoGeneratedFiles() {
+    return autoGeneratedFiles;
+  }
+
+  /**
+   * @return the item type, such as "Compile" or "Content", under which the given file of {@link #files()} is included,
+   * "Compile" if it was not recorded
+   */
+  public String itemType(String file) {
+    String itemType = itemTypes.get(file);
+    return itemType == null ? "Compile" : itemType;
+  }
+
 }
@@ -20,11 +20,21 @@
 package org.sonar.plugins.visualstudio;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,27 +50,153 @@ import java.io.IOException;
 import java.text.Normalizer;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 public class VisualStudioProjectBuilder extends ProjectBuilder {
 
+  public static final String PATH_INDEX_FILE_NAME = "visualstudio-path-index.bin";
   private static final String SONAR_MODULES_PROPERTY_KEY = "sonar.modules";
+  private static final String SONAR_LANGUAGE_PROPERTY_KEY = "sonar.language";
+  private static final String CSHARP_LANGUAGE = "cs";
+  private static final String VBNET_LANGUAGE = "vbnet";
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}");
+  private static final Map<String, String> LANGUAGES_BY_EXTENSION = ImmutableMap.of(".cs", CSHARP_LANGUAGE, ".vb", VBNET_LANGUAGE);
   private static final Logger LOG = LoggerFactory.getLogger(VisualStudioProjectBuilder.class);
 
   private final Settings settings;
+  private final VisualStudioSolutionWatcher watcher;
+  private final VisualStudioEvaluatedProjects evaluatedProjects;
+  private final VisualStudioSolutionModel model;
+  private VisualStudioBootstrapReport report = new VisualStudioBootstrapReport();
+  private VisualStudioDiagnostics diagnostics;
+  private VisualStudioBootstrapEvents events = new VisualStudioBootstrapEvents(false);
+  private VisualStudioPathResolver pathResolver = new VisualStudioPathResolver(false);
 
   public VisualStudioProjectBuilder(Settings settings) {
+    this(settings, new VisualStudioSolutionModel());
+  }
+
+  /**
+   * Used by the batch, to share the parsed solution with the other extensions.
+   */
+  public VisualStudioProjectBuilder(Settings settings, VisualStudioSolutionModel model) {
+    this(settings, null, null, model);
+  }
+
+  /**
+   * Used by embedded callers which keep the solution model in memory across several analyses. The watcher is refreshed
+   * at the beginning of each build, whether or not it was started.
+   */
+  public VisualStudioProjectBuilder(Settings settings, @Nullable VisualStudioSolutionWatcher watcher) {
+    this(settings, watcher, null);
+  }
+
+  /**
+   * Used by callers which already know the projects as evaluated by MSBuild, which are then not parsed again.
+   */
+  public VisualStudioProjectBuilder(Settings settings, @Nullable VisualStudioSolutionWatcher watcher, @Nullable VisualStudioEvaluatedProjects evaluatedProjects) {
+    this(settings, watcher, evaluatedProjects, new VisualStudioSolutionModel());
+  }
+
+  private VisualStudioProjectBuilder(Settings settings, @Nullable VisualStudioSolutionWatcher watcher, @Nullable VisualStudioEvaluatedProjects evaluatedProjects,
+    VisualStudioSolutionModel model) {
     this.settings = settings;
+    this.watcher = watcher;
+    this.evaluatedProjects = evaluatedProjects;
+    this.model = model;
   }
 
   @Override
   public void build(Context context) {
-    build(context, new VisualStudioAssemblyLocator(settings));
+    VisualStudioDiagnostics buildDiagnostics = newDiagnostics();
+    build(context, new VisualStudioAssemblyLocator(settings, buildDiagnostics), buildDiagnostics);
   }
 
   public void build(Context context, VisualStudioAssemblyLocator assemblyLocator) {
+    build(context, assemblyLocator, assemblyLocator.diagnostics());
+  }
+
+  /**
+   * @return the projects evaluated by the caller, or else read from the manifest, if any
+   */
+  @Nullable
+  private VisualStudioEvaluatedProjects evaluatedProjects(File solutionFile, VisualStudioSolution solution) {
+    String manifestPath = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_EVALUATED_PROJECTS_MANIFEST_PROPERTY_KEY);
+    if (evaluatedProjects != null || Strings.isNullOrEmpty(manifestPath)) {
+      return evaluatedProjects;
+    }
+
+    Set<File> projectFiles = Sets.newHashSet();
+    for (VisualStudioSolutionProject project : solution.projects()) {
+      if (isSupportedProjectType(project)) {
+        projectFiles.add(canonicalFile(relativePathFile(solutionFile.getParentFile(), project.path())));
+      }
+    }
+
+    long start = System.nanoTime();
+    File manifestFile = new File(manifestPath.replace('\\', '/'));
+    manifestFile = manifestFile.isAbsolute() ? manifestFile : relativePathFile(solutionFile.getParentFile(), manifestPath);
+    VisualStudioEvaluatedProjects result = new VisualStudioEvaluatedProjects();
+    new VisualStudioProjectManifest(manifestFile).read(result, projectFiles);
+    report.addDuration("manifest reading", System.nanoTime() - start);
+    LOG.info("Using the " + result.size() + " projects evaluated in " + manifestFile.getAbsolutePath());
+    return result;
+  }
+
+  @Nullable
+  private VisualStudioRemoteCache remoteCache() {
+    String url = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_REMOTE_CACHE_URL_PROPERTY_KEY);
+    if (Strings.isNullOrEmpty(url)) {
+      return null;
+    }
+
+    int timeout = settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_REMOTE_CACHE_TIMEOUT_PROPERTY_KEY);
+    return new VisualStudioRemoteCache(url, timeout > 0 ? timeout : VisualStudioPlugin.DEFAULT_REMOTE_CACHE_TIMEOUT);
+  }
+
+  private boolean isSharding() {
+    return settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY) > 1;
+  }
+
+  /**
+   * @return the sizes collected while claiming the files, by their path as declared in the modules
+   */
+  private static Map<String, Long> fileSizes(List<ParsedProject> projects) {
+    Map<String, Long> result = Maps.newHashMap();
+    for (ParsedProject project : projects) {
+      for (int i = 0; project.sizes != null && i < project.sizes.length; i++) {
+        String canonicalPath = project.canonicalPaths[i];
+        if (canonicalPath != null) {
+          result.put(project.files[i].getAbsolutePath(), project.sizes[i]);
+          // The linked files outside of the project directory are declared as resolved
+          if (!VisualStudioLexicalPaths.isInDir(canonicalPath, project.projectDirPath)) {
+            result.put(new File(canonicalPath).getAbsolutePath(), project.sizes[i]);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private VisualStudioIoScheduler newIoScheduler() {
+    int maxConcurrency = settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_MAX_CONCURRENT_IO_PROPERTY_KEY);
+    return new VisualStudioIoScheduler(Runtime.getRuntime().availableProcessors(), maxConcurrency > 0 ? maxConcurrency : VisualStudioPlugin.DEFAULT_MAX_CONCURRENT_IO);
+  }
+
+  private VisualStudioDiagnostics newDiagnostics() {
+    return new VisualStudioDiagnostics(settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_VERBOSE_PROPERTY_KEY));
+  }
+
+  private void build(Context context, VisualStudioAssemblyLocator assemblyLocator, VisualStudioDiagnostics buildDiagnostics) {
+    report = new VisualStudioBootstrapReport();
+    diagnostics = buildDiagnostics;
+    events = new VisualStudioBootstrapEvents(settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_TRACE_PROPERTY_KEY));
+    pathResolver = new VisualStudioPathResolver(!settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_CASE_SENSITIVE_PATHS_PROPERTY_KEY));
     ProjectDefinition solutionProject = context.projectReactor().getRoot();
 
     if (!settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY)) {
@@ -84,70 +220,747 @@ public class VisualStudioProjectBuilder extends ProjectBuilder {
     solutionProject.resetTests();
 
     Set<String> skippedProjects = skippedProjects();
-    boolean hasModules = false;
+    List<ParsedProject> parsedProjects = Lists.newArrayList();
 
-    VisualStudioSolution solution = new VisualStudioSolutionParser().parse(solutionFile);
+    long start = System.nanoTime();
+    boolean isWatched = watcher != null && watcher.solutionFile().equals(solutionFile.getAbsoluteFile());
+    if (isWatched) {
+      // Callers are not required to start the watcher, so that no build ever uses models older than its inputs
+      int outdatedProjects = watcher.refresh().size();
+      if (outdatedProjects > 0) {
+        report.increment("outdated watched projects", outdatedProjects);
+      }
+    }
+    VisualStudioSolution solution = isWatched ? watcher.solution() : new VisualStudioSolutionParser().parse(solutionFile);
+    report.addDuration("solution parsing", System.nanoTime() - start);
+    events.end("solution parsing", null, start, solution.projects().size(), isWatched ? 0 : solutionFile.length(), isWatched ? "cached" : "parsed");
+    model.setSolution(solutionFile.getAbsoluteFile(), solution);
+    VisualStudioEvaluatedProjects evaluated = evaluatedProjects(solutionFile, solution);
     VisualStudioProjectParser projectParser = new VisualStudioProjectParser();
-    for (VisualStudioSolutionProject project : solution.projects()) {
-      String escapedProjectName = escapeProjectName(project.name());
+    VisualStudioRemoteCache remoteCache = remoteCache();
+    // Created on the first web site, whose directory is walked on it
+    VisualStudioIoScheduler webSiteScheduler = null;
+    try {
+      for (VisualStudioSolutionProject project : solution.projects()) {
+        String escapedProjectName = escapeProjectName(project.name());
+
+        if (!isSupportedProjectType(project)) {
+          LOG.info("Skipping the unsupported project type: " + project.path());
+        } else if (skippedProjects.contains(escapedProjectName)) {
+          LOG.info("Skipping the project \"" + escapedProjectName + "\" because it is listed in the property \"" + VisualStudioPlugin.VISUAL_STUDIO_SKIPPED_PROJECTS + "\".");
+        } else if (project.isWebSite()) {
+          if (webSiteScheduler == null) {
+            webSiteScheduler = newIoScheduler();
+          }
+          ParsedProject webSite = webSite(solutionFile, project, webSiteScheduler);
+          if (webSite != null) {
+            parsedProjects.add(webSite);
+            model.addWebSite(project.name(), webSite.projectDir, webSite.project);
+          }
+        } else {
+          File projectFile = relativePathFile(solutionFile.getParentFile(), project.path());
+          if (!projectFile.isFile()) {
+            LOG.warn("Unable to find the Visual Studio project file " + projectFile.getAbsolutePath());
+          } else {
+            start = System.nanoTime();
+            VisualStudioProject evaluatedProject = evaluated == null ? null : evaluated.project(projectFile);
+            VisualStudioProject parsedProject;
+            String outcome;
+            if (evaluatedProject != null) {
+              parsedProject = evaluatedProject;
+              outcome = "evaluated";
+              report.increment("evaluated projects", 1);
+            } else if (isWatched) {
+              parsedProject = watcher.project(projectFile);
+              outcome = "cached";
+            } else {
+              String cacheKey = remoteCache == null ? null : remoteCache.key(projectFile);
+              VisualStudioProject cachedProject = cacheKey == null ? null : remoteCache.get(cacheKey);
+              if (cachedProject != null) {
+                parsedProject = cachedProject;
+                outcome = "remote cache";
+                report.increment("remote cache hits", 1);
+              } else {
+                parsedProject = projectParser.parse(projectFile);
+                outcome = "parsed";
+                if (cacheKey != null) {
+                  report.increment("remote cache misses", 1);
+                  remoteCache.put(cacheKey, parsedProject);
+                }
+              }
+            }
+            report.addDuration("project parsing", System.nanoTime() - start);
+            if (events.isEnabled()) {
+              events.end("project parsing", project.name(), start, parsedProject.files().size(), "parsed".equals(outcome) ? projectFile.length() : 0, outcome);
+            }
+            report.increment("projects", 1);
+            parsedProjects.add(new ParsedProject(project.name(), projectFile, parsedProject));
+            model.addProject(project.name(), projectFile, parsedProject);
+          }
+        }
+      }
+    } finally {
+      if (webSiteScheduler != null) {
+        webSiteScheduler.shutdown();
+      }
+    }
+
+    Preconditions.checkState(!parsedProjects.isEmpty(), "No Visual Studio projects were found.");
 
-      if (!isSupportedProjectType(project)) {
-        LOG.info("Skipping the unsupported project type: " + project.path());
-      } else if (skippedProjects.contains(escapeProjectName(escapedProjectName))) {
-        LOG.info("Skipping the project \"" + escapedProjectName + "\" because it is listed in the property \"" + VisualStudioPlugin.VISUAL_STUDIO_SKIPPED_PROJECTS + "\".");
+    VisualStudioAffectedProjects affectedProjects = affectedProjects(solutionFile, parsedProjects);
+    List<ParsedProject> selectedProjects = Lists.newArrayList();
+    for (ParsedProject parsedProject : parsedProjects) {
+      if (affectedProjects != null && !affectedProjects.isAffected(parsedProject.isWebSite ? parsedProject.projectDir : parsedProject.projectFile)) {
+        LOG.info("Skipping the project \"" + parsedProject.name + "\" which is not affected by the changed files.");
       } else {
-        File projectFile = relativePathFile(solutionFile.getParentFile(), project.path());
-        if (!projectFile.isFile()) {
-          LOG.warn("Unable to find the Visual Studio project file " + projectFile.getAbsolutePath());
+        selectedProjects.add(parsedProject);
+      }
+    }
+
+    VisualStudioItemClassifier itemClassifier = new VisualStudioItemClassifier(settings);
+    start = System.nanoTime();
+    boolean isVerificationDeferred = settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY);
+    VisualStudioFileOwnership ownership = isVerificationDeferred ? listedFileOwnership(selectedProjects, itemClassifier) : fileOwnership(selectedProjects, itemClassifier);
+    report.addDuration("file ownership", System.nanoTime() - start);
+    model.setFileOwnership(ownership);
+
+    long prefetchBudget = settings.getLong(VisualStudioPlugin.VISUAL_STUDIO_PREFETCH_BUDGET_PROPERTY_KEY) * 1024 * 1024;
+    int shardCount = settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY);
+    int aggregationMaxFiles = settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_AGGREGATION_MAX_FILES_PROPERTY_KEY);
+    boolean isDeferred = shardCount > 1 || aggregationMaxFiles > 0;
+    // Both run threads in the background, which are stopped whatever happens once started
+    VisualStudioFilePrefetcher prefetcher = null;
+    VisualStudioDeferredVerifier verifier = null;
+    try {
+      if (prefetchBudget > 0) {
+        prefetcher = new VisualStudioFilePrefetcher(prefetchBudget);
+        prefetchClaimedFiles(prefetcher, selectedProjects, ownership);
+      }
+
+      VisualStudioGeneratedCodeFilter generatedCodeFilter = new VisualStudioGeneratedCodeFilter(settings);
+      if (isVerificationDeferred) {
+        verifier = startVerification(selectedProjects, itemClassifier, ownership, generatedCodeFilter);
+      }
+
+      List<ProjectDefinition> modules = Lists.newArrayList();
+      for (int i = 0; i < selectedProjects.size(); i++) {
+        start = events.begin();
+        ProjectDefinition module = buildModule(solutionProject, selectedProjects.get(i), i, itemClassifier, ownership, verifier == null ? generatedCodeFilter : null,
+          assemblyLocator, solutionFile);
+        if (events.isEnabled()) {
+          events.end("module creation", module.getName(), start, module.sources().size() + module.tests().size(), -1, "created");
+        }
+        if (verifier != null) {
+          verifier.checkDiscrepancies();
         } else {
-          hasModules = true;
-          buildModule(solutionProject, project.name(), projectFile, projectParser.parse(projectFile), assemblyLocator, solutionFile);
+          setLanguageProperty(module, selectedProjects.get(i).projectFile);
+        }
+        modules.add(module);
+        if (!isDeferred) {
+          solutionProject.addSubProject(module);
+        }
+      }
+      if (verifier != null) {
+        // The languages, aggregation and shards depend on the files, which are only known once verified
+        completeVerification(verifier, modules);
+        for (int i = 0; i < modules.size(); i++) {
+          setLanguageProperty(modules.get(i), selectedProjects.get(i).projectFile);
+        }
+      }
+
+      if (aggregationMaxFiles > 0) {
+        int projectsCount = modules.size();
+        modules = new VisualStudioModuleAggregator(aggregationMaxFiles).aggregate(solutionProject, modules);
+        report.increment("aggregated projects", projectsCount - modules.size());
+      }
+      if (shardCount > 1) {
+        modules = shardModules(modules, shardCount, verifier != null ? verifier.fileSizes() : fileSizes(selectedProjects));
+      }
+      if (isDeferred) {
+        for (ProjectDefinition module : modules) {
+          solutionProject.addSubProject(module);
+        }
+      }
+
+      start = System.nanoTime();
+      VisualStudioPathIndex pathIndex = pathIndex(selectedProjects, modules);
+      report.addDuration("path indexing", System.nanoTime() - start);
+      model.setPathIndex(pathIndex);
+      writePathIndex(pathIndex, solutionProject.getWorkDir());
+
+      if (settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_HASH_FILES_PROPERTY_KEY)) {
+        start = System.nanoTime();
+        new VisualStudioFileHasher(Runtime.getRuntime().availableProcessors()).publish(modules, solutionProject.getWorkDir(), affectedProjects == null);
+        report.addDuration("file hashing", System.nanoTime() - start);
+      }
+
+      if (isSourcePatternsEnabled()) {
+        start = System.nanoTime();
+        VisualStudioSourcePatterns sourcePatterns = new VisualStudioSourcePatterns();
+        for (ProjectDefinition module : modules) {
+          if (sourcePatterns.declare(module)) {
+            report.increment("modules declared by patterns", 1);
+          }
+        }
+        report.addDuration("source patterns", System.nanoTime() - start);
+      }
+    } finally {
+      if (verifier != null) {
+        verifier.stop();
+      }
+      if (prefetcher != null) {
+        prefetcher.stop();
+        report.increment("prefetched bytes", prefetcher.prefetchedBytes());
+        report.addDuration("overlapped prefetching", prefetcher.busyNanos());
+      }
+    }
+
+    diagnostics.log(LOG);
+    if (diagnostics.isVerbose() && solutionProject.getWorkDir() != null) {
+      File detailsFile = new File(solutionProject.getWorkDir(), "visualstudio-diagnostics.txt");
+      try {
+        diagnostics.writeDetails(detailsFile);
+        LOG.info("The detail of the Visual Studio bootstrap diagnostics has been written to " + detailsFile.getAbsolutePath());
+      } catch (IOException e) {
+        LOG.warn("Unable to write the Visual Studio bootstrap diagnostics to " + detailsFile.getAbsolutePath(), e);
+      }
+    }
+
+    if (events.isEnabled() && solutionProject.getWorkDir() != null) {
+      File traceFile = new File(solutionProject.getWorkDir(), "visualstudio-trace.json");
+      try {
+        events.writeTrace(traceFile);
+        LOG.info("The " + events.size() + " Visual Studio bootstrap events have been written to " + traceFile.getAbsolutePath());
+      } catch (IOException e) {
+        LOG.warn("Unable to write the Visual Studio bootstrap events to " + traceFile.getAbsolutePath(), e);
+      }
+    }
+
+    if (pathResolver.correctedPaths() > 0) {
+      report.increment("case corrected paths", pathResolver.correctedPaths());
+    }
+    LOG.info("Visual Studio bootstrap done: " + report);
+  }
+
+  private boolean isSourcePatternsEnabled() {
+    if (!settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_SOURCE_PATTERNS_PROPERTY_KEY)) {
+      return false;
+    }
+
+    // The patterns set on the modules would override the ones of the user
+    for (String key : new String[] {"sonar.inclusions", "sonar.exclusions", "sonar.test.inclusions", "sonar.test.exclusions"}) {
+      if (!Strings.isNullOrEmpty(settings.getString(key))) {
+        LOG.info("Listing every file of the modules, as the property \"" + key + "\" is set.");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Prefetches the files as soon as they are claimed, in the order of the projects, rather than once the modules are
+   * aggregated or sharded just before the end of the bootstrap.
+   */
+  private static void prefetchClaimedFiles(VisualStudioFilePrefetcher prefetcher, List<ParsedProject> projects, VisualStudioFileOwnership ownership) {
+    for (int projectIndex = 0; projectIndex < projects.size(); projectIndex++) {
+      ParsedProject project = projects.get(projectIndex);
+      List<String> paths = Lists.newArrayList();
+      for (int i = 0; i < project.files.length; i++) {
+        String canonicalPath = project.canonicalPaths[i];
+        if (canonicalPath != null && ownership.isOwnedBy(canonicalPath, projectIndex)) {
+          paths.add(project.files[i].getAbsolutePath());
         }
       }
+      prefetcher.prefetch(paths);
+    }
+  }
+
+  private List<ProjectDefinition> shardModules(List<ProjectDefinition> modules, int shardCount, Map<String, Long> fileSizes) {
+    int shardIndex = settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY);
+    if (shardIndex < 0 || shardIndex >= shardCount) {
+      throw new SonarException("The property \"" + VisualStudioPlugin.VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY + "\" must be between 0 and " + (shardCount - 1)
+        + ", but is " + shardIndex + ".");
+    }
+
+    long start = System.nanoTime();
+    List<VisualStudioShardPlanner.Shard> shards = new VisualStudioShardPlanner(shardCount).plan(modules, fileSizes);
+    report.addDuration("shard planning", System.nanoTime() - start);
+
+    if (settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_PRINT_SHARD_PLAN_PROPERTY_KEY)) {
+      for (VisualStudioShardPlanner.Shard shard : shards) {
+        LOG.info(shard.toString());
+      }
+    }
+
+    VisualStudioShardPlanner.Shard shard = shards.get(shardIndex);
+    LOG.info("Analyzing the shard " + shardIndex + " of " + shardCount + ": " + shard.modules().size() + " of the " + modules.size() + " projects.");
+    report.increment("projects in other shards", modules.size() - shard.modules().size());
+    return shard.modules();
+  }
+
+  /**
+   * Timings and counters of the last call to {@link #build(Context, VisualStudioAssemblyLocator)}.
+   */
+  public VisualStudioBootstrapReport report() {
+    return report;
+  }
+
+  @Nullable
+  private VisualStudioAffectedProjects affectedProjects(File solutionFile, List<ParsedProject> parsedProjects) {
+    List<File> changedFiles = changedFiles(solutionFile.getParentFile());
+    if (changedFiles == null) {
+      return null;
+    }
+
+    for (File changedFile : changedFiles) {
+      if (changedFile.getAbsoluteFile().equals(solutionFile.getAbsoluteFile())) {
+        LOG.info("All projects are affected by the changed solution file " + solutionFile.getAbsolutePath());
+        return null;
+      }
+    }
+
+    VisualStudioAffectedProjects affectedProjects = new VisualStudioAffectedProjects(changedFiles,
+      !settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_CASE_SENSITIVE_PATHS_PROPERTY_KEY));
+    for (ParsedProject parsedProject : parsedProjects) {
+      if (parsedProject.isWebSite) {
+        affectedProjects.addWebSite(parsedProject.projectDir);
+      } else {
+        affectedProjects.addProject(parsedProject.projectFile, parsedProject.project);
+      }
+    }
+
+    List<File> buildFiles = Lists.newArrayList();
+    List<File> ignoredFiles = Lists.newArrayList();
+    for (File unownedFile : affectedProjects.unownedFiles()) {
+      (isBuildFile(unownedFile) ? buildFiles : ignoredFiles).add(unownedFile);
     }
+    if (!ignoredFiles.isEmpty()) {
+      LOG.info("Ignoring the changed files which belong to no project: " + Joiner.on(", ").join(ignoredFiles));
+    }
+    if (!buildFiles.isEmpty()) {
+      LOG.warn("All projects are affected by the changed build files which belong to no project: " + Joiner.on(", ").join(buildFiles));
+      return null;
+    }
+
+    return affectedProjects;
+  }
 
-    Preconditions.checkState(hasModules, "No Visual Studio projects were found.");
+  /**
+   * @return true if the file may change how any project is built, such as the imported .props and .targets files
+   */
+  private static boolean isBuildFile(File file) {
+    String name = file.getName().toLowerCase(Locale.ENGLISH);
+    return name.endsWith(".sln") || name.startsWith("directory.build.") || name.endsWith(".props") || name.endsWith(".targets")
+      || "nuget.config".equals(name) || "packages.config".equals(name);
+  }
+
+  @Nullable
+  private List<File> changedFiles(File solutionDir) {
+    List<String> paths = Lists.newArrayList();
+
+    String changedFiles = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY);
+    String changedFilesPath = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PATH_PROPERTY_KEY);
+    if (Strings.isNullOrEmpty(changedFiles) && Strings.isNullOrEmpty(changedFilesPath)) {
+      return null;
+    }
+
+    if (!Strings.isNullOrEmpty(changedFiles)) {
+      Iterables.addAll(paths, Splitter.on(',').trimResults().omitEmptyStrings().split(changedFiles));
+    }
+    if (!Strings.isNullOrEmpty(changedFilesPath)) {
+      try {
+        for (String line : Files.readLines(relativePathFile(solutionDir, changedFilesPath), Charsets.UTF_8)) {
+          if (!line.trim().isEmpty()) {
+            paths.add(line.trim());
+          }
+        }
+      } catch (IOException e) {
+        throw new SonarException("Unable to read the changed files listed in " + changedFilesPath, e);
+      }
+    }
+
+    List<File> result = Lists.newArrayList();
+    for (String path : paths) {
+      File file = new File(path.replace('\\', '/'));
+      result.add(file.isAbsolute() ? file : relativePathFile(solutionDir, path));
+    }
+    return result;
   }
 
   private boolean isSupportedProjectType(VisualStudioSolutionProject project) {
     String path = project.path().toLowerCase();
-    return path.endsWith(".csproj") ||
+    return project.isWebSite() ||
+      path.endsWith(".csproj") ||
       path.endsWith(".vbproj");
   }
 
-  private void buildModule(ProjectDefinition solutionProject, String projectName, File projectFile, VisualStudioProject project, VisualStudioAssemblyLocator assemblyLocator,
-    File solutionFile) {
+  /**
+   * @return the web site as a project listing the files of its directory, or null if its directory is not found
+   */
+  @Nullable
+  private ParsedProject webSite(File solutionFile, VisualStudioSolutionProject project, VisualStudioIoScheduler scheduler) {
+    if (project.path().contains("://")) {
+      LOG.info("Skipping the web site \"" + project.name() + "\" which is not located on the file system: " + project.path());
+      return null;
+    }
+
+    File siteDir = relativePathFile(solutionFile.getParentFile(), project.path());
+    if (!siteDir.isDirectory()) {
+      LOG.warn("Unable to find the directory of the Visual Studio web site " + siteDir.getAbsolutePath());
+      return null;
+    }
+
+    long start = System.nanoTime();
+    List<String> extensions = Lists.newArrayList(Splitter.on(',').trimResults().omitEmptyStrings().split(
+      Objects.firstNonNull(settings.getString(VisualStudioPlugin.VISUAL_STUDIO_WEB_SITE_EXTENSIONS_PROPERTY_KEY), VisualStudioPlugin.DEFAULT_WEB_SITE_EXTENSIONS)));
+    List<String> files = new VisualStudioWebSiteWalker(extensions, scheduler).walk(siteDir);
+
+    ImmutableMap.Builder<String, String> itemTypes = ImmutableMap.builder();
+    for (String file : files) {
+      String language = LANGUAGES_BY_EXTENSION.get(file.substring(file.lastIndexOf('.')).toLowerCase(Locale.ENGLISH));
+      itemTypes.put(file, language == null ? "Content" : "Compile");
+    }
+    VisualStudioProject webSite = new VisualStudioProject(files, null, null, ImmutableList.<String>of(), ImmutableList.<String>of(), ImmutableList.<String>of(),
+      ImmutableSet.<String>of(), ImmutableSet.<String>of(), itemTypes.build());
+
+    report.addDuration("web site walking", System.nanoTime() - start);
+    if (events.isEnabled()) {
+      events.end("web site walking", project.name(), start, files.size(), -1, "walked");
+    }
+    report.increment("web sites", 1);
+    return new ParsedProject(project.name(), null, siteDir, webSite, true);
+  }
+
+  /**
+   * Resolves the files of all the projects, and assigns each of them to a single project. The file system operations
+   * are run concurrently, as they may each take milliseconds on network storage, in batches of consecutive items of a
+   * project sized by {@link VisualStudioIoScheduler#batchSize()}.
+   */
+  private VisualStudioFileOwnership fileOwnership(List<ParsedProject> projects, VisualStudioItemClassifier itemClassifier) {
+    final VisualStudioFileOwnership ownership = new VisualStudioFileOwnership();
+    boolean isSizing = isSharding();
+
+    VisualStudioIoScheduler scheduler = newIoScheduler();
+    try {
+      for (int projectIndex = 0; projectIndex < projects.size(); projectIndex++) {
+        final ParsedProject project = projects.get(projectIndex);
+        final File projectDir = project.projectDir;
+        final String canonicalProjectDir = canonicalPath(projectDir);
+        project.projectDirPath = canonicalProjectDir;
+        project.files = new File[project.project.files().size()];
+        project.canonicalPaths = new String[project.project.files().size()];
+        project.sizes = isSizing ? new long[project.project.files().size()] : null;
+
+        final int ownerIndex = projectIndex;
+        final List<String> filePaths = project.project.files();
+        int[] batch = new int[scheduler.batchSize()];
+        int batchLength = 0;
+        for (int i = 0; i < filePaths.size(); i++) {
+          String filePath = filePaths.get(i);
+          if (itemClassifier.action(project.project.itemType(filePath), filePath) != VisualStudioItemClassifier.Action.IGNORE) {
+            batch[batchLength++] = i;
+          }
+          if (batchLength > 0 && (batchLength == batch.length || i == filePaths.size() - 1)) {
+            final int[] itemIndexes = batch;
+            final int itemCount = batchLength;
+            scheduler.submit(new Runnable() {
+              @Override
+              public void run() {
+                for (int j = 0; j < itemCount; j++) {
+                  int itemIndex = itemIndexes[j];
+                  claimFile(ownership, project, ownerIndex, itemIndex, projectDir, canonicalProjectDir, filePaths.get(itemIndex));
+                }
+              }
+            }, itemCount);
+            batch = new int[scheduler.batchSize()];
+            batchLength = 0;
+          }
+        }
+      }
+      scheduler.awaitCompletion();
+    } finally {
+      scheduler.shutdown();
+    }
+
+    report.increment("file system operations", scheduler.operations());
+    report.increment("file system operations per second", scheduler.throughput());
+    report.increment("file system latency (us)", scheduler.averageLatencyMicros());
+    report.increment("file system concurrency", scheduler.peakConcurrency());
+    return ownership;
+  }
+
+  /**
+   * Assigns each file listed in the projects to a single project, trusting the project files: the paths are only
+   * normalized, and the files are verified later on by {@link VisualStudioDeferredVerifier}.
+   */
+  private static VisualStudioFileOwnership listedFileOwnership(List<ParsedProject> projects, VisualStudioItemClassifier itemClassifier) {
+    VisualStudioFileOwnership ownership = new VisualStudioFileOwnership();
+    for (int projectIndex = 0; projectIndex < projects.size(); projectIndex++) {
+      ParsedProject project = projects.get(projectIndex);
+      File projectDir = project.projectDir;
+      String projectDirPath = VisualStudioLexicalPaths.normalize(projectDir);
+      project.projectDirPath = projectDirPath;
+      project.files = new File[project.project.files().size()];
+      project.canonicalPaths = new String[project.project.files().size()];
+
+      int i = 0;
+      for (String filePath : project.project.files()) {
+        if (itemClassifier.action(project.project.itemType(filePath), filePath) != VisualStudioItemClassifier.Action.IGNORE) {
+          File file = new File(projectDir, filePath.replace('\\', '/'));
+          String path = VisualStudioLexicalPaths.normalize(file);
+          // As written, for the verifier to resolve its symbolic links before its ".." segments
+          project.files[i] = file;
+          project.canonicalPaths[i] = path;
+          if (project.project.linkedFiles().contains(filePath) || VisualStudioLexicalPaths.isInDir(path, projectDirPath)) {
+            ownership.claim(path, project.name, projectIndex, projectDirPath);
+          }
+        }
+        i++;
+      }
+    }
+    return ownership;
+  }
+
+  private VisualStudioDeferredVerifier startVerification(final List<ParsedProject> projects, final VisualStudioItemClassifier itemClassifier,
+    final VisualStudioFileOwnership ownership, VisualStudioGeneratedCodeFilter generatedCodeFilter) {
+    VisualStudioIoScheduler scheduler = newIoScheduler();
+    int maxDiscrepancies = settings.hasKey(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_MAX_DISCREPANCIES_PROPERTY_KEY) ?
+      settings.getInt(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_MAX_DISCREPANCIES_PROPERTY_KEY) : VisualStudioPlugin.DEFAULT_DEFERRED_VERIFICATION_MAX_DISCREPANCIES;
+
+    final VisualStudioDeferredVerifier verifier = new VisualStudioDeferredVerifier(scheduler, generatedCodeFilter, diagnostics, maxDiscrepancies, isSharding());
+    verifier.start(new Runnable() {
+      @Override
+      public void run() {
+        // Only the files declared in the modules, which are the ones passing the checks of buildModule()
+        for (int projectIndex = 0; projectIndex < projects.size(); projectIndex++) {
+          ParsedProject project = projects.get(projectIndex);
+          String canonicalProjectDir = canonicalPath(project.projectDir);
+          int i = 0;
+          for (String filePath : project.project.files()) {
+            String path = project.canonicalPaths[i];
+            if (path != null && ownership.isOwnedBy(path, projectIndex)) {
+              verifier.verify(project.name, projectIndex, project.files[i], canonicalProjectDir, project.project.linkedFiles().contains(filePath),
+                project.project.autoGeneratedFiles().contains(filePath));
+            }
+            i++;
+          }
+        }
+      }
+    });
+    return verifier;
+  }
+
+  /**
+   * Waits for the deferred verification, and removes the files which did not pass it from the modules.
+   */
+  private void completeVerification(VisualStudioDeferredVerifier verifier, List<ProjectDefinition> modules) {
+    long start = System.nanoTime();
+    Set<String> rejectedPaths = verifier.await();
+    report.addDuration("deferred verification wait", System.nanoTime() - start);
+
+    if (!rejectedPaths.isEmpty()) {
+      for (ProjectDefinition module : modules) {
+        removePaths(module, ProjectDefinition.SOURCES_PROPERTY, module.sources(), rejectedPaths);
+        removePaths(module, ProjectDefinition.TESTS_PROPERTY, module.tests(), rejectedPaths);
+      }
+    }
+    model.setFileOwnership(verifier.ownership());
+
+    report.increment("deferred verification discrepancies", verifier.discrepancies());
+    if (verifier.excludedGeneratedFiles() > 0) {
+      report.increment("excluded generated files", verifier.excludedGeneratedFiles());
+    }
+    if (verifier.excludedOversizedFiles() > 0) {
+      report.increment("excluded oversized files", verifier.excludedOversizedFiles());
+    }
+  }
+
+  /**
+   * Indexes the files of the modules by their path, as declared and as canonicalized, before they may be replaced by
+   * patterns.
+   */
+  private static VisualStudioPathIndex pathIndex(List<ParsedProject> projects, List<ProjectDefinition> modules) {
+    Map<String, String> canonicalPaths = Maps.newHashMap();
+    for (ParsedProject project : projects) {
+      for (int i = 0; i < project.files.length; i++) {
+        if (project.files[i] != null && project.canonicalPaths[i] != null) {
+          canonicalPaths.put(project.files[i].getAbsolutePath(), project.canonicalPaths[i]);
+        }
+      }
+    }
+
+    VisualStudioPathIndex index = new VisualStudioPathIndex();
+    for (ProjectDefinition module : modules) {
+      for (String path : Iterables.concat(module.sources(), module.tests())) {
+        index.add(path, module.getKey());
+        String canonicalPath = canonicalPaths.get(path);
+        if (canonicalPath != null) {
+          index.add(canonicalPath, module.getKey());
+        }
+      }
+    }
+    return index;
+  }
+
+  private static void writePathIndex(VisualStudioPathIndex pathIndex, @Nullable File workDir) {
+    if (workDir == null) {
+      return;
+    }
+
+    File pathIndexFile = new File(workDir, PATH_INDEX_FILE_NAME);
+    try {
+      Files.createParentDirs(pathIndexFile);
+      pathIndex.write(pathIndexFile);
+      LOG.debug("The index of the " + pathIndex.size() + " paths of the Visual Studio modules has been written to " + pathIndexFile.getAbsolutePath());
+    } catch (IOException e) {
+      LOG.warn("Unable to write the index of the paths of the Visual Studio modules to " + pathIndexFile.getAbsolutePath(), e);
+    }
+  }
+
+  private static void removePaths(ProjectDefinition module, String key, List<String> paths, Set<String> removedPaths) {
+    StringBuilder kept = new StringBuilder();
+    boolean isRemoved = false;
+    for (String path : paths) {
+      if (removedPaths.contains(path)) {
+        isRemoved = true;
+      } else {
+        kept.append(kept.length() == 0 ? "" : ",").append(path);
+      }
+    }
+    if (isRemoved) {
+      module.setProperty(key, kept.toString());
+    }
+  }
+
+  private void claimFile(VisualStudioFileOwnership ownership, ParsedProject project, int projectIndex, int itemIndex, File projectDir, String canonicalProjectDir,
+    String filePath) {
+    // The case-folded directory indexes are only looked up for the files not found as is
+    File file = new File(projectDir, filePath.replace('\\', '/'));
+    if (!file.isFile()) {
+      File corrected = pathResolver.correctCase(projectDir, filePath);
+      if (corrected == null || !corrected.isFile()) {
+        project.files[itemIndex] = file;
+        return;
+      }
+      file = corrected;
+    }
+    project.files[itemIndex] = file;
+
+    // Resolved for each file, as the file itself may be a symbolic link, and a symbolic link to a directory may precede
+    // a ".." segment
+    String canonicalPath = canonicalPath(file);
+    project.canonicalPaths[itemIndex] = canonicalPath;
+    if (project.sizes != null) {
+      project.sizes[itemIndex] = file.length();
+    }
+    if (project.project.linkedFiles().contains(filePath) || VisualStudioLexicalPaths.isInDir(canonicalPath, canonicalProjectDir)) {
+      ownership.claim(canonicalPath, project.name, projectIndex, canonicalProjectDir);
+    }
+  }
+
+  private ProjectDefinition buildModule(ProjectDefinition solutionProject, ParsedProject parsedProject, int projectIndex, VisualStudioItemClassifier itemClassifier,
+    VisualStudioFileOwnership ownership, @Nullable VisualStudioGeneratedCodeFilter generatedCodeFilter, VisualStudioAssemblyLocator assemblyLocator, File solutionFile) {
+    String projectName = parsedProject.name;
+    File projectFile = parsedProject.projectFile;
+    VisualStudioProject project = parsedProject.project;
     String escapedProjectName = escapeProjectName(projectName);
 
     ProjectDefinition module = ProjectDefinition.create()
       .setKey(projectKey(solutionProject.getKey()) + ":" + escapedProjectName)
       .setName(projectName);
-    solutionProject.addSubProject(module);
-
-    module.setBaseDir(projectFile.getParentFile());
+    module.setBaseDir(parsedProject.projectDir);
     module.setWorkDir(new File(solutionProject.getWorkDir(), solutionProject.getKey().replace(':', '_') + "_" + escapedProjectName));
+    model.setModuleKey(projectName, module.getKey());
 
     boolean isTestProject = isTestProject(projectName);
 
+    long start = System.nanoTime();
+    long filterNanos = 0;
+    int ignoredItems = 0;
+    // Joined once rather than appended file by file, which copies the whole list of files each time
+    StringBuilder sources = new StringBuilder();
+    StringBuilder tests = new StringBuilder();
+    String canonicalProjectDir = parsedProject.projectDirPath;
+    // Widened to contain the linked files outside of the project directory, which SonarQube would skip otherwise
+    String baseDirPath = canonicalProjectDir;
+    int i = -1;
     for (String filePath : project.files()) {
-      File file = relativePathFile(projectFile.getParentFile(), filePath);
-      if (!file.isFile()) {
-        LOG.warn("Cannot find the file " + file.getAbsolutePath() + " of project " + projectName);
-      } else if (!isInSourceDir(file, projectFile.getParentFile())) {
-        LOG.warn("Skipping the file " + file.getAbsolutePath() + " of project " + projectName + " located outside of the source directory.");
+      i++;
+      VisualStudioItemClassifier.Action action = itemClassifier.action(project.itemType(filePath), filePath);
+      if (action == VisualStudioItemClassifier.Action.IGNORE) {
+        ignoredItems++;
+        continue;
+      }
+
+      // Resolved while claiming the files, the canonical path being only set for existing files
+      File file = parsedProject.files[i];
+      String canonicalPath = parsedProject.canonicalPaths[i];
+      boolean isInProjectDir = canonicalPath != null && VisualStudioLexicalPaths.isInDir(canonicalPath, canonicalProjectDir);
+      String commonDir = canonicalPath == null || isInProjectDir ? null : VisualStudioLexicalPaths.commonDir(canonicalPath, baseDirPath);
+      if (canonicalPath == null) {
+        diagnostics.add(VisualStudioDiagnostics.Category.MISSING_FILE, projectName, file);
+      } else if (!isInProjectDir && (!project.linkedFiles().contains(filePath) || commonDir == null)) {
+        diagnostics.add(VisualStudioDiagnostics.Category.FILE_OUTSIDE_PROJECT_DIR, projectName, file);
+      } else if (!ownership.isOwnedBy(canonicalPath, projectIndex)) {
+        diagnostics.add(VisualStudioDiagnostics.Category.FILE_OWNED_BY_ANOTHER_PROJECT, projectName, file);
       } else {
-        if (isTestProject) {
-          module.addTests(file);
+        if (!isInProjectDir) {
+          // Declared as resolved, for its path to be within the base directory
+          file = new File(canonicalPath);
+          baseDirPath = commonDir;
+        }
+        long filterStart = System.nanoTime();
+        VisualStudioGeneratedCodeFilter.Exclusion exclusion = generatedCodeFilter == null ? null : generatedCodeFilter.exclusion(file, project.autoGeneratedFiles().contains(filePath));
+        filterNanos += System.nanoTime() - filterStart;
+
+        if (exclusion == VisualStudioGeneratedCodeFilter.Exclusion.GENERATED) {
+          diagnostics.add(VisualStudioDiagnostics.Category.GENERATED_FILE_EXCLUDED, projectName, file);
+          report.increment("excluded generated files", 1);
+        } else if (exclusion == VisualStudioGeneratedCodeFilter.Exclusion.OVERSIZED) {
+          diagnostics.add(VisualStudioDiagnostics.Category.OVERSIZED_FILE_EXCLUDED, projectName, file);
+          report.increment("excluded oversized files", 1);
+        } else if (isTestProject || action == VisualStudioItemClassifier.Action.TEST) {
+          appendPath(tests, file);
         } else {
-          module.addSources(file);
+          appendPath(sources, file);
         }
       }
     }
+    if (!baseDirPath.equals(canonicalProjectDir)) {
+      module.setBaseDir(new File(baseDirPath));
+    }
+    if (sources.length() > 0) {
+      module.setProperty(ProjectDefinition.SOURCES_PROPERTY, sources.toString());
+    }
+    if (tests.length() > 0) {
+      module.setProperty(ProjectDefinition.TESTS_PROPERTY, tests.toString());
+    }
+    if (ignoredItems > 0) {
+      report.increment("ignored items", ignoredItems);
+    }
+    report.addDuration("file verification", System.nanoTime() - start - filterNanos);
+    if (events.isEnabled()) {
+      events.end("file verification", projectName, start, project.files().size(), -1, (module.sources().size() + module.tests().size()) + " files kept");
+    }
+    report.addDuration("generated code filtering", filterNanos);
+    report.increment("files", project.files().size());
 
     forwardModuleProperties(module, escapedProjectName);
-    setFxCopProperties(module, projectFile, project, assemblyLocator);
+    // Web sites are compiled at runtime, and have no project file for StyleCop
+    if (!parsedProject.isWebSite) {
+      start = System.nanoTime();
+      File assembly = setFxCopProperties(module, projectFile, project, assemblyLocator);
+      report.addDuration("assembly location", System.nanoTime() - start);
+      if (events.isEnabled()) {
+        events.end("assembly location", projectName, start, -1, -1, assembly == null ? "not found" : "found");
+      }
+    }
     setReSharperProperties(module, projectName, solutionFile);
-    setStyleCopProperties(module, projectFile);
+    if (!parsedProject.isWebSite) {
+      setStyleCopProperties(module, projectFile);
+    }
+
+    return module;
   }
 
   private void forwardModuleProperties(ProjectDefinition module, String escapedProjectName) {
@@ -158,14 +971,50 @@ public class VisualStudioProjectBuilder extends ProjectBuilder {
     }
   }
 
-  private void setFxCopProperties(ProjectDefinition module, File projectFile, VisualStudioProject project, VisualStudioAssemblyLocator assemblyLocator) {
+  /**
+   * Restricts the module to its language, so that the sensors of the other languages do not run on it, when all its
+   * files are of the same language, and no language is set for the whole solution or forwarded to the module.
+   */
+  private void setLanguageProperty(ProjectDefinition module, @Nullable File projectFile) {
+    if (settings.hasKey(SONAR_LANGUAGE_PROPERTY_KEY) || module.getProperties().containsKey(SONAR_LANGUAGE_PROPERTY_KEY)) {
+      return;
+    }
+
+    String language = module.sources().isEmpty() && module.tests().isEmpty() ? projectLanguage(projectFile) : filesLanguage(module);
+    if (language != null) {
+      module.setProperty(SONAR_LANGUAGE_PROPERTY_KEY, language);
+      report.increment("single language modules", 1);
+    }
+  }
+
+  @Nullable
+  private static String filesLanguage(ProjectDefinition module) {
+    String result = null;
+    for (String path : Iterables.concat(module.sources(), module.tests())) {
+      int i = path.lastIndexOf('.');
+      String language = i == -1 ? null : LANGUAGES_BY_EXTENSION.get(path.substring(i).toLowerCase(Locale.ENGLISH));
+      if (language == null || (result != null && !result.equals(language))) {
+        return null;
+      }
+      result = language;
+    }
+    return result;
+  }
+
+  private static String projectLanguage(@Nullable File projectFile) {
+    return projectFile != null && projectFile.getName().toLowerCase(Locale.ENGLISH).endsWith(".vbproj") ? VBNET_LANGUAGE : CSHARP_LANGUAGE;
+  }
+
+  @Nullable
+  private File setFxCopProperties(ProjectDefinition module, File projectFile, VisualStudioProject project, VisualStudioAssemblyLocator assemblyLocator) {
     File assembly = assemblyLocator.locateAssembly(module.getName(), projectFile, project);
     if (assembly == null) {
-      return;
+      return null;
     }
+    model.setAssembly(module.getName(), assembly);
 
-    module.setProperty("sonar.cs.fxcop.assembly", assembly.getAbsolutePath());
-    module.setProperty("sonar.vbnet.fxcop.assembly", assembly.getAbsolutePath());
+    module.setProperty("sonar." + projectLanguage(projectFile) + ".fxcop.assembly", assembly.getAbsolutePath());
+    return assembly;
   }
 
   private void setReSharperProperties(ProjectDefinition module, String projectName, File solutionFile) {
@@ -177,9 +1026,24 @@ public class VisualStudioProjectBuilder extends ProjectBuilder {
     module.setProperty("sonar.stylecop.projectFilePath", projectFile.getAbsolutePath());
   }
 
-  private static boolean isInSourceDir(File file, File folder) {
+  private static void appendPath(StringBuilder paths, File file) {
+    if (paths.length() > 0) {
+      paths.append(',');
+    }
+    paths.append(file.getAbsolutePath());
+  }
+
+  private static File canonicalFile(File file) {
     try {
-      return file.getCanonicalPath().replace('\\', '/').startsWith(folder.getCanonicalPath().replace('\\', '/') + "/");
+      return file.getCanonicalFile();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static String canonicalPath(File file) {
+    try {
+      return file.getCanonicalPath().replace('\\', '/');
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -207,8 +1071,8 @@ public class VisualStudioProjectBuilder extends ProjectBuilder {
     return result;
   }
 
-  private static File relativePathFile(File file, String relativePath) {
-    return new File(file, relativePath.replace('\\', '/'));
+  private File relativePathFile(File file, String relativePath) {
+    return pathResolver.resolve(file, relativePath);
   }
 
   private String projectKey(String projectKey) {
@@ -233,12 +1097,26 @@ public class VisualStudioProjectBuilder extends ProjectBuilder {
 
   @VisibleForTesting
   static String escapeProjectName(String projectName) {
+    if (isAsciiWithoutSpace(projectName)) {
+      return projectName;
+    }
+
     String escaped = Normalizer.normalize(projectName, Normalizer.Form.NFD);
-    escaped = escaped.replaceAll("\\p{M}", "");
+    escaped = COMBINING_MARKS.matcher(escaped).replaceAll("");
     escaped = escaped.replace(' ', '_');
     return escaped;
   }
 
+  private static boolean isAsciiWithoutSpace(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80 || c == ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private boolean isTestProject(String projectName) {
     String testProjectPattern = settings.getString(VisualStudioPlugin.VISUAL_STUDIO_TEST_PROJECT_PATTERN);
     try {
@@ -255,4 +1133,34 @@ public class VisualStudioProjectBuilder extends ProjectBuilder {
       Collections.<String>emptySet() : ImmutableSet.<String>builder().addAll(Splitter.on(',').omitEmptyStrings().split(skippedProjects)).build();
   }
 
+  private static class ParsedProject {
+
+    private final String name;
+    // Null for web sites, which have no project file
+    private final File projectFile;
+    private final File projectDir;
+    private final VisualStudioProject project;
+    private final boolean isWebSite;
+    // Directory, then file and canonical path of each item in the order of the project files, set when claiming them.
+    // When the verification is deferred, these are the normalized paths as listed in the project.
+    private String projectDirPath;
+    private File[] files;
+    private String[] canonicalPaths;
+    // Size of each existing item, only when sharding, set when claiming them
+    private long[] sizes;
+
+    public ParsedProject(String name, File projectFile, VisualStudioProject project) {
+      this(name, projectFile, projectFile.getParentFile(), project, false);
+    }
+
+    public ParsedProject(String name, @Nullable File projectFile, File projectDir, VisualStudioProject project, boolean isWebSite) {
+      this.name = name;
+      this.projectFile = projectFile;
+      this.projectDir = projectDir;
+      this.project = project;
+      this.isWebSite = isWebSite;
+    }
+
+  }
+
 }
@@ -0,0 +1,331 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import org.sonar.api.utils.MessageException;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the projects evaluated by an MSBuild step of the build from a manifest holding one JSON object per project,
+ * usually one per line (NDJSON):
+ * <pre>
+ * {"project": "Lib/Lib.csproj", "compileItems": ["Foo.cs", "Properties\\AssemblyInfo.cs"], "autoGeneratedItems": ["Properties\\AssemblyInfo.cs"],
+ *   "projectReferences": ["..\\Core\\Core.csproj"], "targetPath": "bin\\Debug\\Lib.dll", "configuration": "Debug", "platform": "AnyCPU"}
+ * </pre>
+ * "project" is either absolute or relative to the directory of the manifest, and is the only mandatory key. The other
+ * paths are either absolute or relative to the project directory. "autoGeneratedItems" lists the compile items having
+ * their "AutoGen" or "DesignTime" metadata set to true. Unknown keys are ignored.
+ * <p/>
+ * The manifest is read record by record, without ever holding more than the current record. When "project" comes first,
+ * the records of the projects which are not part of the solution are skipped without keeping any of their items.
+ */
+public class VisualStudioProjectManifest {
+
+  private final File manifestFile;
+
+  public VisualStudioProjectManifest(File manifestFile) {
+    this.manifestFile = manifestFile;
+  }
+
+  /**
+   * @param projectFiles the canonical files of the projects to keep, or null to keep them all
+   * @return the number of projects added
+   */
+  public int read(VisualStudioEvaluatedProjects evaluatedProjects, @Nullable Set<File> projectFiles) {
+    if (!manifestFile.isFile()) {
+      throw MessageException.of("The evaluated projects manifest " + manifestFile.getAbsolutePath() + " does not exist.");
+    }
+
+    Reader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile), Charsets.UTF_8));
+      JsonReader json = new JsonReader(reader);
+      int count = 0;
+      while (json.hasNext()) {
+        if (readRecord(json, evaluatedProjects, projectFiles)) {
+          count++;
+        }
+      }
+      return count;
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      Closeables.closeQuietly(reader);
+    }
+  }
+
+  private boolean readRecord(JsonReader json, VisualStudioEvaluatedProjects evaluatedProjects, @Nullable Set<File> projectFiles) throws IOException {
+    int line = json.line();
+    File projectFile = null;
+    boolean isSkipped = false;
+    List<String> compileItems = ImmutableList.of();
+    List<String> autoGeneratedItems = ImmutableList.of();
+    List<String> projectReferences = ImmutableList.of();
+    String targetPath = null;
+    String configuration = null;
+    String platform = null;
+
+    json.begin('{');
+    while (json.hasNextEntry('}')) {
+      String key = json.nextString();
+      json.expect(':');
+      if (isSkipped) {
+        json.skipValue();
+      } else if ("project".equals(key)) {
+        projectFile = projectFile(json.nextString());
+        isSkipped = projectFiles != null && !projectFiles.contains(projectFile);
+      } else if ("compileItems".equals(key)) {
+        compileItems = json.nextStrings();
+      } else if ("autoGeneratedItems".equals(key)) {
+        autoGeneratedItems = json.nextStrings();
+      } else if ("projectReferences".equals(key)) {
+        projectReferences = json.nextStrings();
+      } else if ("targetPath".equals(key)) {
+        targetPath = json.nextNullableString();
+      } else if ("configuration".equals(key)) {
+        configuration = json.nextNullableString();
+      } else if ("platform".equals(key)) {
+        platform = json.nextNullableString();
+      } else {
+        json.skipValue();
+      }
+    }
+
+    if (projectFile == null) {
+      throw json.error("Missing \"project\" in the record starting", line);
+    }
+    if (isSkipped) {
+      return false;
+    }
+
+    File projectDir = projectFile.getParentFile();
+    File targetFile = null;
+    if (targetPath != null) {
+      targetFile = new File(targetPath.replace('\\', '/'));
+      targetFile = targetFile.isAbsolute() ? targetFile : new File(projectDir, targetPath.replace('\\', '/'));
+    }
+    evaluatedProjects.add(projectFile, compileItems, autoGeneratedItems, projectReferences, targetFile, configuration, platform);
+    return true;
+  }
+
+  private File projectFile(String path) throws IOException {
+    File file = new File(path.replace('\\', '/'));
+    return (file.isAbsolute() ? file : new File(manifestFile.getAbsoluteFile().getParentFile(), path.replace('\\', '/'))).getCanonicalFile();
+  }
+
+  /**
+   * Minimal pull parser of the subset of JSON used by the manifest, reading one character at a time.
+   */
+  private class JsonReader {
+
+    private final Reader reader;
+    private int peeked = -2;
+    private int line = 1;
+
+    public JsonReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    public int line() throws IOException {
+      skipWhitespaces();
+      return line;
+    }
+
+    public boolean hasNext() throws IOException {
+      skipWhitespaces();
+      return peek() != -1;
+    }
+
+    public void begin(char c) throws IOException {
+      expect(c);
+      skipWhitespaces();
+    }
+
+    /**
+     * @return false when the closing character is reached, which is then consumed
+     */
+    public boolean hasNextEntry(char closing) throws IOException {
+      skipWhitespaces();
+      if (peek() == closing) {
+        read();
+        return false;
+      } else if (peek() == ',') {
+        read();
+        skipWhitespaces();
+      }
+      return true;
+    }
+
+    public void expect(char c) throws IOException {
+      skipWhitespaces();
+      int actual = read();
+      if (actual != c) {
+        throw error("Expected '" + c + "' but got " + (actual == -1 ? "the end of the file" : ("'" + (char) actual + "'")), line);
+      }
+    }
+
+    public String nextString() throws IOException {
+      expect('"');
+      StringBuilder sb = new StringBuilder();
+      for (int c = read(); c != '"'; c = read()) {
+        if (c == -1 || c == '\n') {
+          throw error("Unterminated string", line);
+        } else if (c == '\\') {
+          sb.append(escaped());
+        } else {
+          sb.append((char) c);
+        }
+      }
+      return sb.toString();
+    }
+
+    @Nullable
+    public String nextNullableString() throws IOException {
+      skipWhitespaces();
+      if (peek() == 'n') {
+        literal("null");
+        return null;
+      }
+      return nextString();
+    }
+
+    public List<String> nextStrings() throws IOException {
+      List<String> result = Lists.newArrayList();
+      begin('[');
+      while (hasNextEntry(']')) {
+        result.add(nextString());
+      }
+      return result;
+    }
+
+    public void skipValue() throws IOException {
+      skipWhitespaces();
+      int c = peek();
+      if (c == '"') {
+        nextString();
+      } else if (c == '{') {
+        begin('{');
+        while (hasNextEntry('}')) {
+          nextString();
+          expect(':');
+          skipValue();
+        }
+      } else if (c == '[') {
+        begin('[');
+        while (hasNextEntry(']')) {
+          skipValue();
+        }
+      } else {
+        // Numbers and literals
+        boolean isEmpty = true;
+        while (peek() != -1 && ",}] \t\r\n".indexOf(peek()) == -1) {
+          read();
+          isEmpty = false;
+        }
+        if (isEmpty) {
+          throw error("Unexpected " + (c == -1 ? "end of the file" : ("'" + (char) c + "'")), line);
+        }
+      }
+    }
+
+    private void literal(String literal) throws IOException {
+      for (int i = 0; i < literal.length(); i++) {
+        if (read() != literal.charAt(i)) {
+          throw error("Expected " + literal, line);
+        }
+      }
+    }
+
+    private char escaped() throws IOException {
+      int c = read();
+      switch (c) {
+        case 'n':
+          return '\n';
+        case 't':
+          return '\t';
+        case 'r':
+          return '\r';
+        case 'b':
+          return '\b';
+        case 'f':
+          return '\f';
+        case 'u':
+          char[] hex = new char[4];
+          for (int i = 0; i < hex.length; i++) {
+            hex[i] = (char) read();
+          }
+          try {
+            return (char) Integer.parseInt(new String(hex), 16);
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape sequence", line);
+          }
+        case '"':
+        case '\\':
+        case '/':
+          return (char) c;
+        default:
+          throw error("Invalid escape sequence", line);
+      }
+    }
+
+    private void skipWhitespaces() throws IOException {
+      while (peek() == ' ' || peek() == '\t' || peek() == '\r' || peek() == '\n') {
+        read();
+      }
+    }
+
+    private int peek() throws IOException {
+      if (peeked == -2) {
+        peeked = reader.read();
+      }
+      return peeked;
+    }
+
+    private int read() throws IOException {
+      int c = peek();
+      peeked = -2;
+      if (c == '\n') {
+        line++;
+      }
+      return c;
+    }
+
+    public MessageException error(String message, int errorLine) {
+      return MessageException.of(message + " at line " + errorLine + " of the evaluated projects manifest " + manifestFile.getAbsolutePath());
+    }
+
+  }
+
+}
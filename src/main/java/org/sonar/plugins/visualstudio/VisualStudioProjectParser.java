@@ -23,7 +23,9 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
 
 import javax.annotation.Nullable;
@@ -38,9 +40,14 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class VisualStudioProjectParser {
 
+  private static final Set<String> ITEM_METADATA = ImmutableSet.of("Link", "AutoGen", "DesignTime", "DependentUpon");
+  private static final List<String> GENERATOR_INPUT_EXTENSIONS = ImmutableList.of(".tt", ".resx", ".settings", ".xsd", ".edmx", ".datasource", ".svcmap", ".wsdl");
+
   public VisualStudioProject parse(File file) {
     return new Parser().parse(file);
   }
@@ -55,6 +62,11 @@ public class VisualStudioProjectParser {
     private String currentCondition;
     private final ImmutableList.Builder<String> propertyGroupConditionsBuilder = ImmutableList.builder();
     private final ImmutableList.Builder<String> outputPathsBuilder = ImmutableList.builder();
+    private final ImmutableList.Builder<String> projectReferencesBuilder = ImmutableList.builder();
+    private final ImmutableSet.Builder<String> linkedFilesBuilder = ImmutableSet.builder();
+    private final ImmutableSet.Builder<String> autoGeneratedFilesBuilder = ImmutableSet.builder();
+    private final Map<String, String> itemTypes = Maps.newLinkedHashMap();
+    private String currentItemInclude;
 
     public VisualStudioProject parse(File file) {
       this.file = file;
@@ -76,7 +88,13 @@ public class VisualStudioProjectParser {
             String tagName = stream.getLocalName();
 
             if (inItemGroup && inItemGroupNestingLevel == 0 && projectItemTypes.contains(tagName)) {
-              handleProjectItemTag();
+              handleProjectItemTag(tagName);
+            } else if (inItemGroup && inItemGroupNestingLevel == 0 && "ProjectReference".equals(tagName)) {
+              handleProjectReferenceTag();
+            } else if (inItemGroup && inItemGroupNestingLevel == 1 && currentItemInclude != null && ITEM_METADATA.contains(tagName)) {
+              handleItemMetadataTag(tagName);
+              // The end element has been consumed while reading the text of the element
+              inItemGroupNestingLevel--;
             } else if ("OutputType".equals(tagName)) {
               handleOutputTypeTag();
             } else if ("AssemblyName".equals(tagName)) {
@@ -90,6 +108,7 @@ public class VisualStudioProjectParser {
             if ("ItemGroup".equals(tagName)) {
               inItemGroup = true;
               inItemGroupNestingLevel = 0;
+              currentItemInclude = null;
             } else if (inItemGroup) {
               inItemGroupNestingLevel++;
             }
@@ -100,6 +119,9 @@ public class VisualStudioProjectParser {
               inItemGroup = false;
             } else if (inItemGroup) {
               inItemGroupNestingLevel--;
+              if (inItemGroupNestingLevel == 0) {
+                currentItemInclude = null;
+              }
             }
           }
         }
@@ -112,7 +134,9 @@ public class VisualStudioProjectParser {
         Closeables.closeQuietly(reader);
       }
 
-      return new VisualStudioProject(filesBuilder.build().asList(), outputType, assemblyName, propertyGroupConditionsBuilder.build(), outputPathsBuilder.build());
+      return new VisualStudioProject(filesBuilder.build().asList(), outputType, assemblyName, propertyGroupConditionsBuilder.build(), outputPathsBuilder.build(),
+        projectReferencesBuilder.build(), linkedFilesBuilder.build(), autoGeneratedFilesBuilder.build(),
+        ImmutableMap.copyOf(itemTypes));
     }
 
     private void closeXmlStream() {
@@ -125,9 +149,39 @@ public class VisualStudioProjectParser {
       }
     }
 
-    private void handleProjectItemTag() {
+    private void handleProjectItemTag(String itemType) {
       String include = getRequiredAttribute("Include");
       filesBuilder.add(include);
+      if (!itemTypes.containsKey(include)) {
+        itemTypes.put(include, itemType);
+      }
+      currentItemInclude = include;
+
+      if (getAttribute("Link") != null) {
+        linkedFilesBuilder.add(include);
+      }
+    }
+
+    private void handleItemMetadataTag(String tagName) throws XMLStreamException {
+      String value = stream.getElementText().trim();
+
+      if ("Link".equals(tagName)) {
+        linkedFilesBuilder.add(currentItemInclude);
+      } else if ("DependentUpon".equals(tagName)) {
+        String lowerValue = value.toLowerCase();
+        for (String generatorExtension : GENERATOR_INPUT_EXTENSIONS) {
+          if (lowerValue.endsWith(generatorExtension)) {
+            autoGeneratedFilesBuilder.add(currentItemInclude);
+          }
+        }
+      } else if ("true".equalsIgnoreCase(value)) {
+        // AutoGen or DesignTime
+        autoGeneratedFilesBuilder.add(currentItemInclude);
+      }
+    }
+
+    private void handleProjectReferenceTag() {
+      projectReferencesBuilder.add(getRequiredAttribute("Include"));
     }
 
     private void handleOutputTypeTag() throws XMLStreamException {
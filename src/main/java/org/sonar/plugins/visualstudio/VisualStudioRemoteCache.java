@@ -0,0 +1,260 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Client of a remote cache of parsed projects, shared by all the agents analyzing the same solutions. Projects are
+ * addressed by the hash of the content of their project file, using plain HTTP GET and PUT requests to
+ * &lt;url&gt;/&lt;key&gt;, the body being the project as encoded by {@link #encode(VisualStudioProject)}.
+ * <p/>
+ * The cache is a best effort: on the first failure or timeout, it is disabled for the rest of the bootstrap and the
+ * projects are parsed locally.
+ * <p/>
+ * As the cache is shared, only the projects whose items all stay within their directory are cached: projects with
+ * absolute item paths, or relative ones going up such as linked files, are neither published nor read from it, so
+ * that no cache entry can make the analysis read files outside of the project.
+ */
+public class VisualStudioRemoteCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VisualStudioRemoteCache.class);
+  private static final int FORMAT_VERSION = 1;
+
+  private final String baseUrl;
+  private final int timeoutMillis;
+  private volatile boolean available = true;
+
+  public VisualStudioRemoteCache(String baseUrl, int timeoutMillis) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl : (baseUrl + "/");
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public boolean isAvailable() {
+    return available;
+  }
+
+  /**
+   * @return the key of the project file in the cache, or null if the cache is not available
+   */
+  @Nullable
+  public String key(File projectFile) {
+    if (!available) {
+      return null;
+    }
+
+    try {
+      return VisualStudioFileHasher.hash(projectFile) + "-v" + FORMAT_VERSION;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Nullable
+  public VisualStudioProject get(String key) {
+    if (!available) {
+      return null;
+    }
+
+    HttpURLConnection connection = null;
+    InputStream in = null;
+    try {
+      connection = connection(key, "GET");
+      if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+        return null;
+      } else if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Unexpected HTTP status " + connection.getResponseCode());
+      }
+
+      in = connection.getInputStream();
+      VisualStudioProject project = decode(ByteStreams.toByteArray(in));
+      if (!isCacheable(project)) {
+        LOG.warn("Ignoring the entry " + key + " of the remote Visual Studio project cache " + baseUrl + ", which lists files outside of the project directory.");
+        return null;
+      }
+      return project;
+    } catch (IOException e) {
+      disable(e);
+      return null;
+    } finally {
+      Closeables.closeQuietly(in);
+      disconnect(connection);
+    }
+  }
+
+  public void put(String key, VisualStudioProject project) {
+    if (!available || !isCacheable(project)) {
+      return;
+    }
+
+    HttpURLConnection connection = null;
+    OutputStream out = null;
+    try {
+      byte[] bytes = encode(project);
+      connection = connection(key, "PUT");
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(bytes.length);
+      out = connection.getOutputStream();
+      out.write(bytes);
+      out.close();
+
+      if (connection.getResponseCode() / 100 != 2) {
+        throw new IOException("Unexpected HTTP status " + connection.getResponseCode());
+      }
+    } catch (IOException e) {
+      disable(e);
+    } finally {
+      Closeables.closeQuietly(out);
+      disconnect(connection);
+    }
+  }
+
+  /**
+   * @return true if none of the items of the project is absolute or goes up above the project directory
+   */
+  @VisibleForTesting
+  static boolean isCacheable(VisualStudioProject project) {
+    for (String file : Iterables.concat(project.files(), project.linkedFiles(), project.autoGeneratedFiles())) {
+      if (VisualStudioLexicalPaths.isOutside(VisualStudioLexicalPaths.normalize(file))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private HttpURLConnection connection(String key, String method) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + key).openConnection();
+    connection.setRequestMethod(method);
+    connection.setConnectTimeout(timeoutMillis);
+    connection.setReadTimeout(timeoutMillis);
+    connection.setUseCaches(false);
+    return connection;
+  }
+
+  private static void disconnect(@Nullable HttpURLConnection connection) {
+    if (connection != null) {
+      connection.disconnect();
+    }
+  }
+
+  private void disable(IOException e) {
+    if (available) {
+      available = false;
+      LOG.info("The remote Visual Studio project cache " + baseUrl + " is not available, projects will be parsed locally: " + e.getMessage());
+    }
+  }
+
+  @VisibleForTesting
+  static byte[] encode(VisualStudioProject project) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(FORMAT_VERSION);
+    writeStrings(out, project.files());
+    for (String file : project.files()) {
+      out.writeUTF(project.itemType(file));
+    }
+    writeNullableString(out, project.outputType());
+    writeNullableString(out, project.assemblyName());
+    writeStrings(out, project.propertyGroupConditions());
+    writeStrings(out, project.outputPaths());
+    writeStrings(out, project.projectReferences());
+    writeStrings(out, project.linkedFiles());
+    writeStrings(out, project.autoGeneratedFiles());
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  @VisibleForTesting
+  static VisualStudioProject decode(byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (in.readInt() != FORMAT_VERSION) {
+      throw new IOException("Unsupported format version");
+    }
+
+    List<String> files = readStrings(in);
+    ImmutableMap.Builder<String, String> itemTypes = ImmutableMap.builder();
+    for (String file : files) {
+      itemTypes.put(file, in.readUTF());
+    }
+    String outputType = readNullableString(in);
+    String assemblyName = readNullableString(in);
+    List<String> propertyGroupConditions = readStrings(in);
+    List<String> outputPaths = readStrings(in);
+    List<String> projectReferences = readStrings(in);
+    Set<String> linkedFiles = ImmutableSet.copyOf(readStrings(in));
+    Set<String> autoGeneratedFiles = ImmutableSet.copyOf(readStrings(in));
+
+    return new VisualStudioProject(files, outputType, assemblyName, propertyGroupConditions, outputPaths, projectReferences, linkedFiles, autoGeneratedFiles,
+      itemTypes.build());
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (String s : strings) {
+      out.writeUTF(s);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    ImmutableList.Builder<String> builder = ImmutableList.builder();
+    for (int i = 0; i < size; i++) {
+      builder.add(in.readUTF());
+    }
+    return builder.build();
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  @Nullable
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the modules into shards of similar analysis costs, using the longest-processing-time-first heuristic:
+ * the most expensive modules are assigned first, each one to the shard with the lowest cost so far.
+ * <p/>
+ * The cost of a module is the size of its files, as collected while verifying them, plus a fixed overhead per file,
+ * test files counting for half. Modules with an assembly to analyze with FxCop cost a fixed overhead more, whatever
+ * their number of files, while web sites and projects without assembly do not.
+ * Costs are rounded to about 10% before being compared, and ties are broken by module key, so that small changes
+ * of the files do not move modules from one shard to another between runs.
+ */
+public class VisualStudioShardPlanner {
+
+  private static final long FILE_OVERHEAD_BYTES = 4 * 1024;
+  private static final long ASSEMBLY_OVERHEAD_BYTES = 256 * 1024;
+  private static final String FXCOP_ASSEMBLY_PROPERTY_KEY_SUFFIX = ".fxcop.assembly";
+  private static final double TEST_COST_FACTOR = 0.5;
+  private static final double COST_ROUNDING_BASE = Math.log(1.1);
+
+  private final int shardCount;
+
+  public VisualStudioShardPlanner(int shardCount) {
+    this.shardCount = shardCount;
+  }
+
+  /**
+   * @param fileSizes the sizes of the files of the modules by absolute path, the missing ones only counting for their overhead
+   */
+  public List<Shard> plan(List<ProjectDefinition> modules, Map<String, Long> fileSizes) {
+    final Map<ProjectDefinition, Long> costs = Maps.newHashMap();
+    final Map<ProjectDefinition, Integer> positions = Maps.newHashMap();
+    for (ProjectDefinition module : modules) {
+      costs.put(module, roundedCost(module, fileSizes));
+      positions.put(module, positions.size());
+    }
+
+    List<ProjectDefinition> sortedModules = Lists.newArrayList(modules);
+    Collections.sort(sortedModules, new Comparator<ProjectDefinition>() {
+      @Override
+      public int compare(ProjectDefinition o1, ProjectDefinition o2) {
+        int result = costs.get(o2).compareTo(costs.get(o1));
+        return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+      }
+    });
+
+    List<Shard> shards = Lists.newArrayList();
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new Shard(i));
+    }
+
+    for (ProjectDefinition module : sortedModules) {
+      Shard cheapestShard = shards.get(0);
+      for (Shard shard : shards) {
+        if (shard.cost < cheapestShard.cost) {
+          cheapestShard = shard;
+        }
+      }
+      cheapestShard.add(module, costs.get(module));
+    }
+
+    // Keep the modules of each shard in their original solution order
+    for (Shard shard : shards) {
+      Collections.sort(shard.modules, new Comparator<ProjectDefinition>() {
+        @Override
+        public int compare(ProjectDefinition o1, ProjectDefinition o2) {
+          return positions.get(o1) - positions.get(o2);
+        }
+      });
+    }
+
+    return shards;
+  }
+
+  private static long roundedCost(ProjectDefinition module, Map<String, Long> fileSizes) {
+    double cost = cost(module.sources(), fileSizes) + TEST_COST_FACTOR * cost(module.tests(), fileSizes) + 1;
+    if (hasAssembly(module)) {
+      cost += ASSEMBLY_OVERHEAD_BYTES;
+    }
+    return Math.round(Math.exp(Math.round(Math.log(cost) / COST_ROUNDING_BASE) * COST_ROUNDING_BASE));
+  }
+
+  private static long cost(List<String> paths, Map<String, Long> fileSizes) {
+    long cost = 0;
+    for (String path : paths) {
+      Long size = fileSizes.get(path);
+      cost += FILE_OVERHEAD_BYTES + (size == null ? 0 : size);
+    }
+    return cost;
+  }
+
+  private static boolean hasAssembly(ProjectDefinition module) {
+    for (Object key : module.getProperties().keySet()) {
+      if (key.toString().endsWith(FXCOP_ASSEMBLY_PROPERTY_KEY_SUFFIX)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static class Shard {
+
+    private final int index;
+    private final List<ProjectDefinition> modules = Lists.newArrayList();
+    private long cost;
+
+    private Shard(int index) {
+      this.index = index;
+    }
+
+    private void add(ProjectDefinition module, long moduleCost) {
+      modules.add(module);
+      cost += moduleCost;
+    }
+
+    public int index() {
+      return index;
+    }
+
+    public List<ProjectDefinition> modules() {
+      return modules;
+    }
+
+    public long cost() {
+      return cost;
+    }
+
+    @Override
+    public String toString() {
+      List<String> names = Lists.newArrayList();
+      for (ProjectDefinition module : modules) {
+        names.add(module.getName());
+      }
+      return "Shard " + index + " (cost " + cost + "): " + names;
+    }
+
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The solution and projects parsed by {@link VisualStudioProjectBuilder}, along with their assemblies and the owner of
+ * each file, shared with the other .NET plugins so that they do not parse the same solution and project files again.
+ * <p/>
+ * It is filled when the project reactor is built, and can be injected into any batch extension. Projects are
+ * identified by their name in the solution; the modules merged by the aggregation are only known by the
+ * {@link #moduleKey(String)} of their files.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class VisualStudioSolutionModel implements BatchExtension {
+
+  private File solutionFile;
+  private VisualStudioSolution solution;
+  private final Map<String, File> projectFiles = Maps.newLinkedHashMap();
+  private final Map<String, File> webSiteDirs = Maps.newHashMap();
+  private final Map<String, VisualStudioProject> projects = Maps.newHashMap();
+  private final Map<String, File> assemblies = Maps.newHashMap();
+  private final Map<String, String> projectNamesByModuleKey = Maps.newHashMap();
+  private VisualStudioFileOwnership ownership;
+  private VisualStudioPathIndex pathIndex;
+
+  synchronized void setSolution(File solutionFile, VisualStudioSolution solution) {
+    this.solutionFile = solutionFile;
+    this.solution = solution;
+    projectFiles.clear();
+    webSiteDirs.clear();
+    projects.clear();
+    assemblies.clear();
+    projectNamesByModuleKey.clear();
+    ownership = null;
+    pathIndex = null;
+  }
+
+  synchronized void addProject(String projectName, File projectFile, VisualStudioProject project) {
+    projectFiles.put(projectName, projectFile);
+    projects.put(projectName, project);
+  }
+
+  synchronized void addWebSite(String projectName, File siteDir, VisualStudioProject project) {
+    projectFiles.put(projectName, null);
+    webSiteDirs.put(projectName, siteDir);
+    projects.put(projectName, project);
+  }
+
+  synchronized void setModuleKey(String projectName, String moduleKey) {
+    projectNamesByModuleKey.put(moduleKey, projectName);
+  }
+
+  synchronized void setAssembly(String projectName, File assembly) {
+    assemblies.put(projectName, assembly);
+  }
+
+  synchronized void setFileOwnership(VisualStudioFileOwnership ownership) {
+    this.ownership = ownership;
+  }
+
+  synchronized void setPathIndex(VisualStudioPathIndex pathIndex) {
+    this.pathIndex = pathIndex;
+  }
+
+  /**
+   * @return the solution file, or null if no solution was bootstrapped
+   */
+  @Nullable
+  public synchronized File solutionFile() {
+    return solutionFile;
+  }
+
+  @Nullable
+  public synchronized VisualStudioSolution solution() {
+    return solution;
+  }
+
+  /**
+   * @return the names of the parsed projects, in the solution order
+   */
+  public synchronized Set<String> projectNames() {
+    return ImmutableSet.copyOf(projectFiles.keySet());
+  }
+
+  @Nullable
+  public synchronized VisualStudioProject project(String projectName) {
+    return projects.get(projectName);
+  }
+
+  /**
+   * @return the project file, or null if the project is a web site, which has no project file
+   */
+  @Nullable
+  public synchronized File projectFile(String projectName) {
+    return projectFiles.get(projectName);
+  }
+
+  /**
+   * @return the directory of the web site, or null if the project is not a web site
+   */
+  @Nullable
+  public synchronized File webSiteDir(String projectName) {
+    return webSiteDirs.get(projectName);
+  }
+
+  /**
+   * @return the name of the project of the given module, or null if the module was not created from a single project
+   */
+  @Nullable
+  public synchronized String projectName(String moduleKey) {
+    return projectNamesByModuleKey.get(moduleKey);
+  }
+
+  /**
+   * @return the assembly built from the project, or null if it was not found
+   */
+  @Nullable
+  public synchronized File assembly(String projectName) {
+    return assemblies.get(projectName);
+  }
+
+  /**
+   * @return the name of the single project the file is analyzed with, or null if no project includes it
+   */
+  @Nullable
+  public synchronized String owner(File file) {
+    if (ownership == null) {
+      return null;
+    }
+
+    try {
+      return ownership.owner(file.getCanonicalPath().replace('\\', '/'));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the index of the files of the modules, or null if no solution was bootstrapped
+   */
+  @Nullable
+  public synchronized VisualStudioPathIndex pathIndex() {
+    return pathIndex;
+  }
+
+  /**
+   * @param path the absolute path of a file, e.g. as written in the report of an external tool
+   * @return the key of the module the file is analyzed with, or null if no module includes it
+   */
+  @Nullable
+  public String moduleKey(String path) {
+    VisualStudioPathIndex index = pathIndex();
+    return index == null ? null : index.moduleKey(path);
+  }
+
+}
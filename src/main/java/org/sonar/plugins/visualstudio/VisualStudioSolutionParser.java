@@ -58,7 +58,11 @@ public class VisualStudioSolutionParser {
       throw new ParseErrorException("Expected the line " + lineNumber + " of " + file.getAbsolutePath() + " to match the regular expression " + PROJECT_LINE_PATTERN);
     }
 
-    return new VisualStudioSolutionProject(matcher.group(1), matcher.group(2));
+    // The project type GUID, between the first quotes
+    int typeStart = line.indexOf('"') + 1;
+    String type = line.substring(typeStart, line.indexOf('"', typeStart));
+
+    return new VisualStudioSolutionProject(matcher.group(1), matcher.group(2), type);
   }
 
   private static class ParseErrorException extends RuntimeException {
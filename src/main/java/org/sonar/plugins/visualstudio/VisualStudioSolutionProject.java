@@ -25,12 +25,23 @@ package org.sonar.plugins.visualstudio;
  */
 public class VisualStudioSolutionProject {
 
+  private static final String WEB_SITE_PROJECT_TYPE = "{E24C65DC-7377-472B-9ABA-BC803B73C61A}";
+
   private final String name;
   private final String path;
+  private final String type;
 
   public VisualStudioSolutionProject(String name, String path) {
+    this(name, path, "");
+  }
+
+  /**
+   * @param type the GUID of the project type, e.g. "{FAE04EC0-301F-11D3-BF4B-00C04F79EFBC}" for C# projects
+   */
+  public VisualStudioSolutionProject(String name, String path, String type) {
     this.name = name;
     this.path = path;
+    this.type = type;
   }
 
   public String name() {
@@ -41,4 +52,15 @@ public class VisualStudioSolutionProject {
     return path;
   }
 
+  public String type() {
+    return type;
+  }
+
+  /**
+   * @return true for web site projects, which have no project file: their path is the one of their directory
+   */
+  public boolean isWebSite() {
+    return WEB_SITE_PROJECT_TYPE.equalsIgnoreCase(type);
+  }
+
 }
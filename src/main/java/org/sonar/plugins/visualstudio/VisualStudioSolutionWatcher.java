@@ -0,0 +1,168 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the parsed model of a solution in memory for long-lived (embedded) callers, and updates it incrementally:
+ * only the projects whose project file or item directories changed since the last refresh are parsed again.
+ * Changes are detected by polling modification times, as this plugin must still run on Java 6.
+ * Web sites have no project file to watch: their directory is walked again on every build.
+ */
+public class VisualStudioSolutionWatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VisualStudioSolutionWatcher.class);
+
+  private final File solutionFile;
+  private final VisualStudioSolutionParser solutionParser = new VisualStudioSolutionParser();
+  private final VisualStudioProjectParser projectParser = new VisualStudioProjectParser();
+  private final Map<File, WatchedProject> projects = Maps.newHashMap();
+  private VisualStudioSolution solution;
+  private long solutionStamp;
+  private ScheduledExecutorService executor;
+
+  public VisualStudioSolutionWatcher(File solutionFile) {
+    this.solutionFile = solutionFile.getAbsoluteFile();
+  }
+
+  public File solutionFile() {
+    return solutionFile;
+  }
+
+  public synchronized VisualStudioSolution solution() {
+    if (solution == null) {
+      solution = solutionParser.parse(solutionFile);
+      solutionStamp = stamp(solutionFile);
+    }
+    return solution;
+  }
+
+  public synchronized VisualStudioProject project(File projectFile) {
+    Preconditions.checkArgument(!projectFile.isDirectory(), "Web sites have no project file to watch: %s", projectFile);
+    File key = projectFile.getAbsoluteFile();
+    WatchedProject watched = projects.get(key);
+    if (watched == null) {
+      watched = new WatchedProject(key, projectParser.parse(key));
+      projects.put(key, watched);
+    }
+    return watched.project;
+  }
+
+  /**
+   * Checks every watched input and drops the outdated models, so that they get parsed again on next access.
+   *
+   * @return the project files whose model was outdated
+   */
+  public synchronized Set<File> refresh() {
+    if (solution != null && stamp(solutionFile) != solutionStamp) {
+      LOG.info("The solution file changed: " + solutionFile.getAbsolutePath());
+      solution = null;
+    }
+
+    ImmutableSet.Builder<File> changed = ImmutableSet.builder();
+    for (Iterator<WatchedProject> it = projects.values().iterator(); it.hasNext();) {
+      WatchedProject watched = it.next();
+      if (watched.isOutdated()) {
+        LOG.info("The project inputs changed: " + watched.projectFile.getAbsolutePath());
+        changed.add(watched.projectFile);
+        it.remove();
+      }
+    }
+    return changed.build();
+  }
+
+  public synchronized void start(long periodMillis) {
+    if (executor != null) {
+      return;
+    }
+
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "Visual Studio solution watcher");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        refresh();
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private static long stamp(File file) {
+    return file.lastModified() * 31 + file.length();
+  }
+
+  private static class WatchedProject {
+
+    private final File projectFile;
+    private final VisualStudioProject project;
+    private final Map<File, Long> stamps = Maps.newHashMap();
+
+    public WatchedProject(File projectFile, VisualStudioProject project) {
+      this.projectFile = projectFile;
+      this.project = project;
+
+      // Adding, removing or renaming a file updates the modification time of its directory
+      stamps.put(projectFile, stamp(projectFile));
+      for (String filePath : project.files()) {
+        File directory = new File(projectFile.getParentFile(), filePath.replace('\\', '/')).getParentFile();
+        if (!stamps.containsKey(directory)) {
+          stamps.put(directory, stamp(directory));
+        }
+      }
+    }
+
+    public boolean isOutdated() {
+      for (Map.Entry<File, Long> entry : stamps.entrySet()) {
+        if (stamp(entry.getKey()) != entry.getValue()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replaces the explicit list of files of a module by its base directory, plus inclusion and exclusion patterns,
+ * whenever those patterns select exactly the same files, so that the scanner does not have to carry and validate
+ * each file of the largest projects.
+ * <p/>
+ * The inclusion patterns select the extensions of the module files. The files of those extensions which are not part
+ * of the module are excluded, and so are the directories holding none of the module files, without looking into them.
+ * Only the directories holding module files are listed. The explicit list is kept when too many exclusions would be
+ * needed, when the module mixes sources and tests, or has files outside of its base directory.
+ * <p/>
+ * The paths are compared once lexically normalized, as the scanner relativizes the files to the base directory without
+ * resolving any link either.
+ */
+public class VisualStudioSourcePatterns {
+
+  private static final int MIN_FILES = 50;
+  private static final int MIN_MAX_EXCLUSIONS = 10;
+  private static final int MAX_EXCLUSIONS_RATIO = 10;
+
+  /**
+   * @return true if the files of the module were replaced by patterns
+   */
+  public boolean declare(ProjectDefinition module) {
+    boolean isTestModule = module.sources().isEmpty();
+    List<String> paths = isTestModule ? module.tests() : module.sources();
+    if (paths.size() < MIN_FILES || (!module.sources().isEmpty() && !module.tests().isEmpty())) {
+      return false;
+    }
+
+    String baseDir = VisualStudioLexicalPaths.normalize(module.getBaseDir());
+    Set<String> relativePaths = Sets.newHashSet();
+    Set<String> extensions = Sets.newTreeSet();
+    Set<String> dirs = Sets.newHashSet();
+    for (String path : paths) {
+      String normalizedPath = VisualStudioLexicalPaths.normalize(path);
+      int extensionIndex = normalizedPath.lastIndexOf('.');
+      if (!VisualStudioLexicalPaths.isInDir(normalizedPath, baseDir) || extensionIndex < normalizedPath.lastIndexOf('/')) {
+        return false;
+      }
+
+      String relativePath = normalizedPath.substring(baseDir.length() + (baseDir.endsWith("/") ? 0 : 1));
+      relativePaths.add(relativePath);
+      extensions.add(normalizedPath.substring(extensionIndex));
+      for (int i = relativePath.indexOf('/'); i != -1; i = relativePath.indexOf('/', i + 1)) {
+        dirs.add(relativePath.substring(0, i));
+      }
+    }
+
+    int maxExclusions = Math.max(MIN_MAX_EXCLUSIONS, relativePaths.size() / MAX_EXCLUSIONS_RATIO);
+    Set<String> exclusions = Sets.newTreeSet();
+    if (!collectExclusions(module.getBaseDir(), "", extensions, relativePaths, dirs, exclusions, maxExclusions)) {
+      return false;
+    }
+
+    List<String> inclusions = Lists.newArrayList();
+    for (String extension : extensions) {
+      inclusions.add("**/*" + extension);
+    }
+
+    String dirsKey = isTestModule ? ProjectDefinition.TESTS_PROPERTY : ProjectDefinition.SOURCES_PROPERTY;
+    String prefix = isTestModule ? "sonar.test." : "sonar.";
+    module.setProperty(dirsKey, module.getBaseDir().getAbsolutePath());
+    module.setProperty(prefix + "inclusions", Joiner.on(',').join(inclusions));
+    if (!exclusions.isEmpty()) {
+      module.setProperty(prefix + "exclusions", Joiner.on(',').join(exclusions));
+    }
+    return true;
+  }
+
+  /**
+   * @return false if more than maxExclusions exclusions are needed
+   */
+  private static boolean collectExclusions(File dir, String relativeDir, Set<String> extensions, Set<String> relativePaths, Set<String> dirs, Set<String> exclusions,
+    int maxExclusions) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return true;
+    }
+
+    for (File child : children) {
+      String relativePath = relativeDir + child.getName();
+      if (child.isDirectory()) {
+        if (!dirs.contains(relativePath)) {
+          exclusions.add(relativePath + "/**");
+        } else if (!collectExclusions(child, relativePath + "/", extensions, relativePaths, dirs, exclusions, maxExclusions)) {
+          return false;
+        }
+      } else if (hasExtension(child.getName(), extensions) && !relativePaths.contains(relativePath)) {
+        exclusions.add(relativePath);
+      }
+
+      if (exclusions.size() > maxExclusions) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean hasExtension(String fileName, Set<String> extensions) {
+    int i = fileName.lastIndexOf('.');
+    return i != -1 && extensions.contains(fileName.substring(i));
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Lists the files of a web site project, which has no project file: the files of its directory having one of the given
+ * extensions. The build outputs and package directories are pruned without being listed, as they hold most of the files
+ * of large sites. Symbolic links to directories are not followed.
+ * <p/>
+ * The directories are walked level by level, those of each level being listed concurrently on the given
+ * {@link VisualStudioIoScheduler}, so that listings never wait for the scheduler from within it.
+ */
+public class VisualStudioWebSiteWalker {
+
+  private static final Set<String> PRUNED_DIRECTORIES = ImmutableSet.of("bin", "obj", "node_modules", "packages");
+
+  private final Set<String> extensions;
+  private final VisualStudioIoScheduler scheduler;
+
+  /**
+   * @param extensions the extensions of the files to list, e.g. ".cs", regardless of their case
+   */
+  public VisualStudioWebSiteWalker(Collection<String> extensions, VisualStudioIoScheduler scheduler) {
+    ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+    for (String extension : extensions) {
+      builder.add(extension.toLowerCase(Locale.ENGLISH));
+    }
+    this.extensions = builder.build();
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @return the paths of the files relative to the directory, with "/" as separator, sorted
+   */
+  public List<String> walk(File dir) {
+    final Queue<String> files = new ConcurrentLinkedQueue<String>();
+    List<Dir> level = Lists.newArrayList(new Dir(dir, ""));
+    while (!level.isEmpty()) {
+      final Queue<Dir> nextLevel = new ConcurrentLinkedQueue<Dir>();
+      for (final Dir current : level) {
+        scheduler.submit(new Runnable() {
+          @Override
+          public void run() {
+            list(current, files, nextLevel);
+          }
+        });
+      }
+      scheduler.awaitCompletion();
+      level = Lists.newArrayList(nextLevel);
+    }
+
+    List<String> result = Lists.newArrayList(files);
+    Collections.sort(result);
+    return result;
+  }
+
+  private void list(Dir dir, Queue<String> files, Queue<Dir> subDirs) {
+    File[] children = dir.file.listFiles();
+    if (children == null) {
+      return;
+    }
+
+    for (File child : children) {
+      String name = child.getName();
+      if (hasExtension(name) && child.isFile()) {
+        files.add(dir.relativePath + name);
+      } else if (!isPruned(name) && child.isDirectory() && !isSymlink(child)) {
+        subDirs.add(new Dir(child, dir.relativePath + name + "/"));
+      }
+    }
+  }
+
+  private boolean hasExtension(String fileName) {
+    int i = fileName.lastIndexOf('.');
+    return i != -1 && extensions.contains(fileName.substring(i).toLowerCase(Locale.ENGLISH));
+  }
+
+  private static boolean isPruned(String dirName) {
+    return PRUNED_DIRECTORIES.contains(dirName.toLowerCase(Locale.ENGLISH));
+  }
+
+  private static boolean isSymlink(File file) {
+    try {
+      return FileUtils.isSymlink(file);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static class Dir {
+
+    private final File file;
+    private final String relativePath;
+
+    public Dir(File file, String relativePath) {
+      this.file = file;
+      this.relativePath = relativePath;
+    }
+
+  }
+
+}
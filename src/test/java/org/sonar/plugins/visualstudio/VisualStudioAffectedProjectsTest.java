@@ -0,0 +1,114 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioAffectedProjectsTest {
+
+  private static final File CORE = new File("solution/Core/Core.csproj");
+  private static final File DATA = new File("solution/Data/Data.csproj");
+  private static final File APP = new File("solution/App/App.csproj");
+  private static final File OTHER = new File("solution/Other/Other.csproj");
+
+  @Test
+  public void should_follow_project_references_transitively() {
+    VisualStudioAffectedProjects affectedProjects = affectedProjects(new File("solution/Core/Shared/Util.cs"));
+
+    assertThat(affectedProjects.isAffected(CORE)).isTrue();
+    assertThat(affectedProjects.isAffected(DATA)).isTrue();
+    assertThat(affectedProjects.isAffected(APP)).isTrue();
+    assertThat(affectedProjects.isAffected(OTHER)).isFalse();
+  }
+
+  @Test
+  public void should_not_affect_referenced_projects() {
+    VisualStudioAffectedProjects affectedProjects = affectedProjects(new File("solution/Data/Data.csproj"), new File("solution/unknown.txt"));
+
+    assertThat(affectedProjects.isAffected(CORE)).isFalse();
+    assertThat(affectedProjects.isAffected(DATA)).isTrue();
+    assertThat(affectedProjects.isAffected(APP)).isTrue();
+    assertThat(affectedProjects.isAffected(OTHER)).isFalse();
+  }
+
+  @Test
+  public void should_match_the_normalized_paths_regardless_of_their_case() {
+    VisualStudioAffectedProjects affectedProjects = affectedProjects(true, new File("solution/Other/../core/shared/UTIL.cs"));
+
+    assertThat(affectedProjects.isAffected(CORE)).isTrue();
+    assertThat(affectedProjects.isAffected(APP)).isTrue();
+    assertThat(affectedProjects.isAffected(OTHER)).isFalse();
+    assertThat(affectedProjects.unownedFiles()).isEmpty();
+
+    assertThat(affectedProjects(false, new File("solution/core/shared/UTIL.cs")).isAffected(CORE)).isFalse();
+  }
+
+  @Test
+  public void should_list_the_unowned_files() {
+    File props = new File("solution/Directory.Build.props");
+    VisualStudioAffectedProjects affectedProjects = affectedProjects(new File("solution/Data/Data.cs"), props);
+
+    assertThat(affectedProjects.unownedFiles()).containsExactly(props);
+  }
+
+  @Test
+  public void should_affect_the_web_sites_containing_the_changed_files() {
+    File site = new File("solution/Site");
+    VisualStudioAffectedProjects affectedProjects = affectedProjects(new File("solution/Site/App_Code/Helper.cs"));
+    affectedProjects.addWebSite(site);
+
+    assertThat(affectedProjects.isAffected(site)).isTrue();
+    assertThat(affectedProjects.isAffected(CORE)).isFalse();
+    assertThat(affectedProjects.unownedFiles()).isEmpty();
+
+    affectedProjects = affectedProjects(new File("solution/SiteOld/Default.aspx"));
+    affectedProjects.addWebSite(site);
+
+    assertThat(affectedProjects.isAffected(site)).isFalse();
+    assertThat(affectedProjects.unownedFiles()).containsExactly(new File("solution/SiteOld/Default.aspx"));
+  }
+
+  private static VisualStudioAffectedProjects affectedProjects(File... changedFiles) {
+    return affectedProjects(false, changedFiles);
+  }
+
+  private static VisualStudioAffectedProjects affectedProjects(boolean caseInsensitive, File... changedFiles) {
+    VisualStudioAffectedProjects affectedProjects = new VisualStudioAffectedProjects(ImmutableList.copyOf(changedFiles), caseInsensitive);
+    affectedProjects.addProject(CORE, project(ImmutableList.of("Shared\\Util.cs"), ImmutableList.<String>of()));
+    affectedProjects.addProject(DATA, project(ImmutableList.of("Data.cs"), ImmutableList.of("..\\Core\\Core.csproj")));
+    affectedProjects.addProject(APP, project(ImmutableList.of("App.cs"), ImmutableList.of("..\\Data\\Data.csproj")));
+    affectedProjects.addProject(OTHER, project(ImmutableList.of("Other.cs"), ImmutableList.<String>of()));
+    return affectedProjects;
+  }
+
+  private static VisualStudioProject project(ImmutableList<String> files, ImmutableList<String> projectReferences) {
+    return new VisualStudioProject(files, "Library", "Foo", ImmutableList.<String>of(), ImmutableList.<String>of(), projectReferences,
+      ImmutableSet.<String>of(), ImmutableSet.<String>of(),
+      ImmutableMap.<String, String>of());
+  }
+
+}
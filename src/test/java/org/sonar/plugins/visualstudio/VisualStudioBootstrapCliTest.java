@@ -0,0 +1,89 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioBootstrapCliTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_write_the_modules() throws Exception {
+    File solutionDir = tmp.newFolder("solution");
+    FileUtils.copyDirectory(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"), solutionDir);
+    File outputFile = new File(tmp.getRoot(), "out.properties");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int status = VisualStudioBootstrapCli.run(new String[] {
+      new File(solutionDir, "solution.sln").getAbsolutePath(),
+      "-Dsonar.projectKey=solution:key",
+      "-D" + VisualStudioPlugin.VISUAL_STUDIO_TEST_PROJECT_PATTERN + "=.*Test",
+      "-o", outputFile.getAbsolutePath()}, new PrintStream(out));
+
+    assertThat(status).isEqualTo(0);
+    assertThat(out.toString()).contains("Written 2 modules to").contains("project parsing: ");
+
+    Properties properties = new Properties();
+    InputStream in = new FileInputStream(outputFile);
+    try {
+      properties.load(in);
+    } finally {
+      in.close();
+    }
+
+    assertThat(properties.getProperty("sonar.visualstudio.enable")).isEqualTo("false");
+    assertThat(properties.getProperty("sonar.modules")).isEqualTo("MyLibrary,MyLibraryTest");
+    assertThat(properties.getProperty("MyLibrary.sonar.projectKey")).isEqualTo("MyLibrary");
+    assertThat(properties.getProperty("MyLibrary.sonar.projectBaseDir")).isEqualTo(new File(solutionDir, "MyLibrary").getAbsolutePath());
+    assertThat(properties.getProperty("MyLibrary.sonar.working.directory")).isEqualTo(new File(solutionDir, ".sonar/solution_key_MyLibrary").getAbsolutePath());
+    // Default value of the plugin property definitions
+    assertThat(properties.getProperty("MyLibrary.sonar.language")).isEqualTo("cs");
+    assertThat(properties.getProperty("MyLibrary.sonar.sources")).isEqualTo(new File(solutionDir, "MyLibrary/Adder.cs").getAbsolutePath());
+    assertThat(properties.getProperty("MyLibrary.sonar.stylecop.projectFilePath")).isEqualTo(new File(solutionDir, "MyLibrary/MyLibrary.csproj").getAbsolutePath());
+    assertThat(properties.getProperty("MyLibraryTest.sonar.tests")).isEqualTo(new File(solutionDir, "MyLibraryTest/AdderTest.cs").getAbsolutePath());
+    assertThat(properties.getProperty("MyLibraryTest.sonar.resharper.projectName")).isEqualTo("MyLibraryTest");
+  }
+
+  @Test
+  public void should_print_usage() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(VisualStudioBootstrapCli.run(new String[0], new PrintStream(out))).isEqualTo(1);
+    assertThat(out.toString()).startsWith("Usage: ");
+
+    out.reset();
+    assertThat(VisualStudioBootstrapCli.run(new String[] {"a.sln", "b.sln"}, new PrintStream(out))).isEqualTo(1);
+    assertThat(out.toString()).contains("Unexpected argument: b.sln");
+  }
+
+}
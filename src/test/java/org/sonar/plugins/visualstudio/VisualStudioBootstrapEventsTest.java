@@ -0,0 +1,65 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioBootstrapEventsTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_not_record_when_disabled() {
+    VisualStudioBootstrapEvents events = new VisualStudioBootstrapEvents(false);
+    assertThat(events.isEnabled()).isFalse();
+    assertThat(events.begin()).isEqualTo(0);
+
+    events.end("project parsing", "MyLibrary", 0, 3, 1024, "parsed");
+    assertThat(events.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_write_trace_events() throws Exception {
+    VisualStudioBootstrapEvents events = new VisualStudioBootstrapEvents(true);
+    events.end("solution parsing", null, events.begin(), 2, 512, "parsed");
+    events.end("project parsing", "My \"Library\"", events.begin(), 3, -1, "parsed");
+    assertThat(events.size()).isEqualTo(2);
+
+    File file = new File(tmp.getRoot(), "trace.json");
+    events.writeTrace(file);
+
+    String trace = Files.toString(file, Charsets.UTF_8);
+    assertThat(trace).startsWith("{\"traceEvents\":[\n{\"name\":\"solution parsing\",\"cat\":\"solution parsing\",\"ph\":\"X\",\"pid\":1,");
+    assertThat(trace).contains("\"args\":{\"items\":2,\"bytes\":512,\"outcome\":\"parsed\"}}");
+    assertThat(trace).contains("{\"name\":\"project parsing My \\\"Library\\\"\",\"cat\":\"project parsing\"");
+    assertThat(trace).contains("\"args\":{\"project\":\"My \\\"Library\\\"\",\"items\":3,\"outcome\":\"parsed\"}}");
+    assertThat(trace).endsWith("\n]}\n");
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Reference implementation of the remote cache used by {@link VisualStudioRemoteCache}, storing each entry in a file of
+ * the given directory.
+ */
+public class VisualStudioCacheServer {
+
+  // Not only made of dots, which would be the directory or its parent
+  private static final Pattern KEY_PATTERN = Pattern.compile("(?!\\.+$)[0-9A-Za-z_.-]{1,128}");
+  private static final int MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+  private static final int THREADS = 8;
+
+  private final File directory;
+  private final HttpServer server;
+
+  /**
+   * @param port the port to listen to, or 0 to pick any free port
+   */
+  public VisualStudioCacheServer(File directory, int port) throws IOException {
+    this.directory = directory;
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/", new Handler());
+    server.setExecutor(Executors.newFixedThreadPool(THREADS));
+  }
+
+  public void start() {
+    directory.mkdirs();
+    server.start();
+  }
+
+  public void stop() {
+    server.stop(0);
+    ((ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  private class Handler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        String key = exchange.getRequestURI().getPath().substring(1);
+        if (!KEY_PATTERN.matcher(key).matches()) {
+          sendEmptyResponse(exchange, 400);
+        } else if ("GET".equals(exchange.getRequestMethod())) {
+          get(exchange, new File(directory, key));
+        } else if ("PUT".equals(exchange.getRequestMethod())) {
+          put(exchange, new File(directory, key));
+        } else {
+          sendEmptyResponse(exchange, 405);
+        }
+      } finally {
+        exchange.close();
+      }
+    }
+
+    /**
+     * The connection is closed after a response without body, as the JDK client fails to reuse it for a following PUT.
+     */
+    private void sendEmptyResponse(HttpExchange exchange, int status) throws IOException {
+      exchange.getResponseHeaders().set("Connection", "close");
+      exchange.sendResponseHeaders(status, -1);
+    }
+
+    private void get(HttpExchange exchange, File file) throws IOException {
+      if (!file.isFile()) {
+        sendEmptyResponse(exchange, 404);
+        return;
+      }
+
+      byte[] bytes = Files.toByteArray(file);
+      exchange.sendResponseHeaders(200, bytes.length);
+      OutputStream out = exchange.getResponseBody();
+      try {
+        out.write(bytes);
+      } finally {
+        Closeables.closeQuietly(out);
+      }
+    }
+
+    private void put(HttpExchange exchange, File file) throws IOException {
+      byte[] bytes = readAtMost(exchange.getRequestBody(), MAX_ENTRY_SIZE);
+      if (bytes == null) {
+        sendEmptyResponse(exchange, 413);
+        return;
+      }
+
+      // Write to a temporary file first, so that concurrent readers never see a partial entry
+      File tmpFile = File.createTempFile(file.getName(), ".tmp", directory);
+      FileOutputStream out = new FileOutputStream(tmpFile);
+      try {
+        out.write(bytes);
+      } finally {
+        Closeables.closeQuietly(out);
+      }
+      if (!tmpFile.renameTo(file)) {
+        file.delete();
+        if (!tmpFile.renameTo(file)) {
+          tmpFile.delete();
+          sendEmptyResponse(exchange, 500);
+          return;
+        }
+      }
+
+      sendEmptyResponse(exchange, 204);
+    }
+
+    /**
+     * @return null if the stream is longer than maxSize
+     */
+    @Nullable
+    private byte[] readAtMost(InputStream in, int maxSize) throws IOException {
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+          if (out.size() > maxSize) {
+            return null;
+          }
+        }
+        return out.toByteArray();
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.sonar.plugins.visualstudio.VisualStudioDiagnostics.Category;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class VisualStudioDiagnosticsTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_log_a_bounded_summary() {
+    VisualStudioDiagnostics diagnostics = new VisualStudioDiagnostics(false);
+    for (int i = 0; i < 7; i++) {
+      for (int j = 0; j <= i; j++) {
+        diagnostics.add(Category.MISSING_FILE, "Project" + i, new File("File" + j + ".cs"));
+      }
+    }
+    diagnostics.add(Category.ASSEMBLY_CANDIDATE_NOT_BUILT, "Project0", new File("bin/Debug/Project0.dll"));
+
+    assertThat(diagnostics.count(Category.MISSING_FILE)).isEqualTo(28);
+    assertThat(diagnostics.count(Category.FILE_OUTSIDE_PROJECT_DIR)).isEqualTo(0);
+
+    Logger logger = mock(Logger.class);
+    diagnostics.log(logger);
+
+    verify(logger).warn("28 files could not be found in 7 projects, mostly in: Project6 (7), Project5 (6), Project4 (5), Project3 (4), Project2 (3)");
+    verify(logger).info("1 candidate assemblies were not built in 1 projects, mostly in: Project0 (1)");
+    verifyNoMoreInteractions(logger);
+  }
+
+  @Test
+  public void should_only_keep_details_in_verbose_mode() throws Exception {
+    File file = new File(tmp.getRoot(), "details.txt");
+
+    VisualStudioDiagnostics diagnostics = new VisualStudioDiagnostics(false);
+    diagnostics.add(Category.MISSING_FILE, "Project", new File("Foo.cs"));
+    diagnostics.writeDetails(file);
+    assertThat(Files.toString(file, Charsets.UTF_8)).isEmpty();
+
+    diagnostics = new VisualStudioDiagnostics(true);
+    diagnostics.add(Category.MISSING_FILE, "Project", new File("Foo.cs"));
+    diagnostics.add(Category.ASSEMBLY_NOT_FOUND, "Project", "Project.csproj");
+    diagnostics.writeDetails(file);
+    assertThat(Files.readLines(file, Charsets.UTF_8)).containsExactly(
+      "MISSING_FILE\tProject\t" + new File("Foo.cs").getAbsolutePath(),
+      "ASSEMBLY_NOT_FOUND\tProject\tProject.csproj");
+  }
+
+}
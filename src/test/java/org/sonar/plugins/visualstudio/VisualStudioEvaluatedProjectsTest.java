@@ -0,0 +1,117 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioEvaluatedProjectsTest {
+
+  private static final File SOLUTION_DIR = new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln").getAbsoluteFile();
+
+  @Test
+  public void should_convert_evaluated_projects() {
+    File projectFile = new File(SOLUTION_DIR, "MyLibrary/MyLibrary.csproj");
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    evaluatedProjects.add(
+      projectFile,
+      ImmutableList.of("Adder.cs", new File(SOLUTION_DIR, "MyLibrary/Multiplier.cs").getAbsolutePath(), new File(SOLUTION_DIR, "OrphanFile.cs").getAbsolutePath()),
+      ImmutableList.of(new File(SOLUTION_DIR, "Core/Core.csproj").getAbsolutePath()),
+      new File(SOLUTION_DIR, "bin/Release/MyLibrary.dll"),
+      "Release",
+      "AnyCPU");
+
+    assertThat(evaluatedProjects.size()).isEqualTo(1);
+    assertThat(evaluatedProjects.project(new File(SOLUTION_DIR, "MyLibraryTest/MyLibraryTest.csproj"))).isNull();
+
+    VisualStudioProject project = evaluatedProjects.project(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/MyLibrary/../MyLibrary/MyLibrary.csproj"));
+    assertThat(project.files()).containsExactly("Adder.cs", "Multiplier.cs", "../OrphanFile.cs");
+    assertThat(project.projectReferences()).containsExactly("../Core/Core.csproj");
+    assertThat(project.outputType()).isEqualTo("Library");
+    assertThat(project.assemblyName()).isEqualTo("MyLibrary");
+    assertThat(project.outputPaths()).containsExactly("../bin/Release");
+    assertThat(project.propertyGroupConditions()).containsExactly(" '$(Configuration)|$(Platform)' == 'Release|AnyCPU' ");
+    assertThat(project.itemType("Adder.cs")).isEqualTo("Compile");
+    assertThat(ImmutableList.copyOf(project.linkedFiles())).containsExactly("../OrphanFile.cs");
+    assertThat(project.autoGeneratedFiles()).isEmpty();
+  }
+
+  @Test
+  public void should_flag_the_linked_and_auto_generated_items() {
+    File projectFile = new File(SOLUTION_DIR, "MyLibrary/MyLibrary.csproj");
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    evaluatedProjects.add(
+      projectFile,
+      ImmutableList.of("Adder.cs", "Properties\\Resources.Designer.cs", "..\\Shared\\Version.cs", "Sub\\..\\Multiplier.cs"),
+      ImmutableList.of(new File(SOLUTION_DIR, "MyLibrary/Properties/Resources.Designer.cs").getAbsolutePath()),
+      ImmutableList.<String>of(),
+      null,
+      null,
+      null);
+
+    VisualStudioProject project = evaluatedProjects.project(projectFile);
+    assertThat(ImmutableList.copyOf(project.linkedFiles())).containsExactly("..\\Shared\\Version.cs");
+    assertThat(ImmutableList.copyOf(project.autoGeneratedFiles())).containsExactly("Properties\\Resources.Designer.cs");
+  }
+
+  @Test
+  public void should_relativize_the_absolute_items_lexically() {
+    File solutionDir = new File("target/VisualStudioEvaluatedProjectsTest/missing").getAbsoluteFile();
+    File projectFile = new File(solutionDir, "Src/Lib/Lib.csproj");
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    evaluatedProjects.add(
+      projectFile,
+      ImmutableList.of(
+        new File(solutionDir, "Src/Lib/Sub/../Foo.cs").getAbsolutePath(),
+        new File(solutionDir, "Shared/Bar.cs").getAbsolutePath(),
+        new File(solutionDir, "Src/Library/Baz.cs").getAbsolutePath()),
+      ImmutableList.<String>of(),
+      new File(solutionDir, "Src/Lib/bin/Lib.dll"),
+      null,
+      null);
+
+    VisualStudioProject project = evaluatedProjects.project(projectFile);
+    assertThat(project.files()).containsExactly("Foo.cs", "../../Shared/Bar.cs", "../Library/Baz.cs");
+    assertThat(ImmutableList.copyOf(project.linkedFiles())).containsExactly("../../Shared/Bar.cs", "../Library/Baz.cs");
+    assertThat(project.outputPaths()).containsExactly("bin");
+  }
+
+  @Test
+  public void should_support_projects_without_assembly() {
+    File projectFile = new File(SOLUTION_DIR, "MyLibrary/MyLibrary.csproj");
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    evaluatedProjects.add(projectFile, ImmutableList.of("Adder.cs"), ImmutableList.<String>of(), null, null, null);
+
+    VisualStudioProject project = evaluatedProjects.project(projectFile);
+    assertThat(project.outputType()).isNull();
+    assertThat(project.assemblyName()).isNull();
+    assertThat(project.outputPaths()).isEmpty();
+    assertThat(project.propertyGroupConditions()).containsExactly("");
+  }
+
+}
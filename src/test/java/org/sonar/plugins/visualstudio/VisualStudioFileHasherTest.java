@@ -0,0 +1,101 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioFileHasherTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void hash() throws Exception {
+    File empty = tmp.newFile("empty.cs");
+    File foo = tmp.newFile("foo.cs");
+    Files.write("foo", foo, Charsets.UTF_8);
+
+    assertThat(ImmutableList.copyOf(new VisualStudioFileHasher(2).hash(ImmutableList.of(empty.getAbsolutePath(), foo.getAbsolutePath())).values())).containsExactly(
+      "da39a3ee5e6b4b0d3255bfef95601890afd80709",
+      "0beec7b5ea3f0fdbc95d0dd47f3c5bc275da8a33");
+  }
+
+  @Test
+  public void should_publish_changed_files() throws Exception {
+    File workDir = tmp.newFolder("work");
+    File a = tmp.newFile("a.cs");
+    File b = tmp.newFile("b.cs");
+    File c = tmp.newFile("c.cs");
+
+    VisualStudioFileHasher hasher = new VisualStudioFileHasher(2);
+
+    ProjectDefinition first = ProjectDefinition.create().addSources(a).addTests(b);
+    ProjectDefinition second = ProjectDefinition.create().addSources(c);
+    hasher.publish(ImmutableList.of(first, second), workDir);
+
+    assertThat(first.getProperties().getProperty(VisualStudioFileHasher.CHANGED_FILES_PROPERTY_KEY)).isEqualTo(a.getAbsolutePath() + "," + b.getAbsolutePath());
+    assertThat(first.getProperties().getProperty(VisualStudioFileHasher.UNCHANGED_MODULE_PROPERTY_KEY)).isEqualTo("false");
+
+    Files.write("changed", b, Charsets.UTF_8);
+
+    first = ProjectDefinition.create().addSources(a).addTests(b);
+    second = ProjectDefinition.create().addSources(c);
+    hasher.publish(ImmutableList.of(first, second), workDir);
+
+    assertThat(first.getProperties().getProperty(VisualStudioFileHasher.CHANGED_FILES_PROPERTY_KEY)).isEqualTo(b.getAbsolutePath());
+    assertThat(first.getProperties().getProperty(VisualStudioFileHasher.UNCHANGED_MODULE_PROPERTY_KEY)).isEqualTo("false");
+    assertThat(second.getProperties().getProperty(VisualStudioFileHasher.CHANGED_FILES_PROPERTY_KEY)).isEmpty();
+    assertThat(second.getProperties().getProperty(VisualStudioFileHasher.UNCHANGED_MODULE_PROPERTY_KEY)).isEqualTo("true");
+  }
+
+  @Test
+  public void should_keep_the_hashes_of_the_modules_not_analyzed() throws Exception {
+    File workDir = tmp.newFolder("work");
+    File a = tmp.newFile("a.cs");
+    File b = tmp.newFile("b.cs");
+
+    VisualStudioFileHasher hasher = new VisualStudioFileHasher(2);
+    hasher.publish(ImmutableList.of(ProjectDefinition.create().addSources(a), ProjectDefinition.create().addSources(b)), workDir);
+
+    Files.write("changed", a, Charsets.UTF_8);
+    ProjectDefinition first = ProjectDefinition.create().addSources(a);
+    hasher.publish(ImmutableList.of(first), workDir, false);
+    assertThat(first.getProperties().getProperty(VisualStudioFileHasher.CHANGED_FILES_PROPERTY_KEY)).isEqualTo(a.getAbsolutePath());
+
+    ProjectDefinition second = ProjectDefinition.create().addSources(b);
+    hasher.publish(ImmutableList.of(second), workDir, false);
+    assertThat(second.getProperties().getProperty(VisualStudioFileHasher.UNCHANGED_MODULE_PROPERTY_KEY)).isEqualTo("true");
+
+    first = ProjectDefinition.create().addSources(a);
+    hasher.publish(ImmutableList.of(first), workDir, false);
+    assertThat(first.getProperties().getProperty(VisualStudioFileHasher.UNCHANGED_MODULE_PROPERTY_KEY)).isEqualTo("true");
+  }
+
+}
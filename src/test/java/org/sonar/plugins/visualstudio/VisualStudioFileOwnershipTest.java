@@ -0,0 +1,60 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioFileOwnershipTest {
+
+  @Test
+  public void should_prefer_projects_containing_the_file() {
+    VisualStudioFileOwnership ownership = new VisualStudioFileOwnership();
+    ownership.claim("/s/Shared/Foo.cs", "Linker", 0, "/s/Linker");
+    ownership.claim("/s/Shared/Foo.cs", "Shared", 1, "/s/Shared");
+
+    assertThat(ownership.owner("/s/Shared/Foo.cs")).isEqualTo("Shared");
+    assertThat(ownership.isOwnedBy("/s/Shared/Foo.cs", 1)).isTrue();
+    assertThat(ownership.isOwnedBy("/s/Shared/Foo.cs", 0)).isFalse();
+  }
+
+  @Test
+  public void should_prefer_deepest_project_directory() {
+    VisualStudioFileOwnership ownership = new VisualStudioFileOwnership();
+    ownership.claim("/s/A/B/Foo.cs", "B", 1, "/s/A/B");
+    ownership.claim("/s/A/B/Foo.cs", "A", 0, "/s/A");
+
+    assertThat(ownership.owner("/s/A/B/Foo.cs")).isEqualTo("B");
+  }
+
+  @Test
+  public void should_prefer_first_project_of_the_solution() {
+    VisualStudioFileOwnership ownership = new VisualStudioFileOwnership();
+    ownership.claim("/s/Shared/Foo.cs", "Second", 1, "/s/Second");
+    ownership.claim("/s/Shared/Foo.cs", "First", 0, "/s/First");
+    ownership.claim("/s/Shared/Foo.cs", "Third", 2, "/s/Third");
+
+    assertThat(ownership.owner("/s/Shared/Foo.cs")).isEqualTo("First");
+    assertThat(ownership.owner("/s/Shared/Bar.cs")).isNull();
+    assertThat(ownership.isOwnedBy("/s/Shared/Bar.cs", 0)).isFalse();
+  }
+
+}
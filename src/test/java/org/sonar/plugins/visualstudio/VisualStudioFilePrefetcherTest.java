@@ -0,0 +1,71 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioFilePrefetcherTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_read_files_up_to_the_byte_budget() throws Exception {
+    File a = file("A.cs", 100 * 1024);
+    File b = file("B.cs", 100 * 1024);
+    File c = file("C.cs", 100 * 1024);
+
+    VisualStudioFilePrefetcher prefetcher = new VisualStudioFilePrefetcher(150 * 1024);
+    prefetcher.prefetch(ImmutableList.of(a.getAbsolutePath(), new File(tmp.getRoot(), "Missing.cs").getAbsolutePath(), b.getAbsolutePath()));
+    prefetcher.prefetch(ImmutableList.of(c.getAbsolutePath()));
+
+    long deadline = System.currentTimeMillis() + 10000;
+    while (prefetcher.prefetchedBytes() < 150 * 1024 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    prefetcher.stop();
+
+    assertThat(prefetcher.prefetchedBytes()).isGreaterThanOrEqualTo(150 * 1024).isLessThan(200 * 1024);
+    assertThat(prefetcher.busyNanos()).isGreaterThan(0);
+  }
+
+  @Test
+  public void should_stop_when_nothing_was_prefetched() {
+    VisualStudioFilePrefetcher prefetcher = new VisualStudioFilePrefetcher(1024);
+    prefetcher.stop();
+
+    assertThat(prefetcher.prefetchedBytes()).isEqualTo(0);
+  }
+
+  private File file(String name, int size) throws Exception {
+    File file = tmp.newFile(name);
+    Files.write(new byte[size], file);
+    return file;
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.visualstudio.VisualStudioGeneratedCodeFilter.Exclusion;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioGeneratedCodeFilterTest {
+
+  private static final File PROJECT_DIR = new File("src/test/resources/VisualStudioProjectBuilderTest/generated_code/Lib/");
+
+  @Test
+  public void should_exclude_generated_files() {
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY, "*.designer.cs, TemporaryGeneratedFile_*");
+    VisualStudioGeneratedCodeFilter filter = new VisualStudioGeneratedCodeFilter(settings);
+
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Lib.cs"), false)).isNull();
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Lib.cs"), true)).isEqualTo(Exclusion.GENERATED);
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Form.Designer.cs"), false)).isEqualTo(Exclusion.GENERATED);
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "TemporaryGeneratedFile_036C0B5B.cs"), false)).isEqualTo(Exclusion.GENERATED);
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Service/Proxy.cs"), false)).isEqualTo(Exclusion.GENERATED);
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Big.cs"), false)).isNull();
+  }
+
+  @Test
+  public void should_exclude_oversized_files() {
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_MAX_FILE_SIZE_PROPERTY_KEY, 2);
+    VisualStudioGeneratedCodeFilter filter = new VisualStudioGeneratedCodeFilter(settings);
+
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Lib.cs"), false)).isNull();
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Form.Designer.cs"), false)).isNull();
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Big.cs"), false)).isEqualTo(Exclusion.OVERSIZED);
+  }
+
+  @Test
+  public void should_not_exclude_anything_when_disabled() {
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY, "*.Designer.cs");
+    VisualStudioGeneratedCodeFilter filter = new VisualStudioGeneratedCodeFilter(settings);
+
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Form.Designer.cs"), true)).isNull();
+    assertThat(filter.exclusion(new File(PROJECT_DIR, "Service/Proxy.cs"), false)).isNull();
+  }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioIoSchedulerTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void should_raise_concurrency_on_high_latency_storage() {
+    // Network storage double: each operation takes 5 ms, i.e. 1.6 s when run one at a time
+    SlowStorage storage = new SlowStorage(5);
+    VisualStudioIoScheduler scheduler = new VisualStudioIoScheduler(2, 64);
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < 320; i++) {
+        scheduler.submit(storage);
+      }
+      scheduler.awaitCompletion();
+    } finally {
+      scheduler.shutdown();
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+    assertThat(storage.operations.get()).isEqualTo(320);
+    assertThat(scheduler.operations()).isEqualTo(320);
+    assertThat(scheduler.peakConcurrency()).isGreaterThanOrEqualTo(32);
+    assertThat(storage.peakInFlight.get()).isGreaterThan(2);
+    assertThat(storage.peakInFlight.get()).isLessThanOrEqualTo(64);
+    assertThat(scheduler.averageLatencyMicros()).isGreaterThanOrEqualTo(5000);
+    assertThat(elapsedMillis).isLessThan(800);
+  }
+
+  @Test
+  public void should_keep_minimum_concurrency_on_low_latency_storage() {
+    SlowStorage storage = new SlowStorage(0);
+    VisualStudioIoScheduler scheduler = new VisualStudioIoScheduler(2, 64);
+    try {
+      for (int i = 0; i < 1000; i++) {
+        scheduler.submit(storage);
+      }
+      scheduler.awaitCompletion();
+    } finally {
+      scheduler.shutdown();
+    }
+
+    assertThat(storage.operations.get()).isEqualTo(1000);
+    assertThat(scheduler.concurrency()).isEqualTo(2);
+    assertThat(storage.peakInFlight.get()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  public void should_size_the_batches_from_the_latency() {
+    final SlowStorage fastStorage = new SlowStorage(0);
+    VisualStudioIoScheduler scheduler = new VisualStudioIoScheduler(2, 64);
+    try {
+      for (int i = 0; i < 100; i++) {
+        scheduler.submit(new Runnable() {
+          @Override
+          public void run() {
+            for (int j = 0; j < 10; j++) {
+              fastStorage.run();
+            }
+          }
+        }, 10);
+      }
+      scheduler.awaitCompletion();
+      assertThat(scheduler.operations()).isEqualTo(1000);
+      assertThat(scheduler.batchSize()).isGreaterThan(16);
+
+      SlowStorage slowStorage = new SlowStorage(5);
+      for (int i = 0; i < 64; i++) {
+        scheduler.submit(slowStorage);
+      }
+      scheduler.awaitCompletion();
+      assertThat(scheduler.batchSize()).isEqualTo(1);
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void should_rethrow_failures() {
+    VisualStudioIoScheduler scheduler = new VisualStudioIoScheduler(1, 1);
+    try {
+      scheduler.submit(new Runnable() {
+        @Override
+        public void run() {
+          throw new IllegalStateException("Unreadable file");
+        }
+      });
+
+      thrown.expect(IllegalStateException.class);
+      thrown.expectMessage("Unreadable file");
+      scheduler.awaitCompletion();
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  private static class SlowStorage implements Runnable {
+
+    private final long latencyMillis;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger operations = new AtomicInteger();
+
+    public SlowStorage(long latencyMillis) {
+      this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public void run() {
+      int current = inFlight.incrementAndGet();
+      int peak;
+      do {
+        peak = peakInFlight.get();
+      } while (current > peak && !peakInFlight.compareAndSet(peak, current));
+
+      try {
+        if (latencyMillis > 0) {
+          Thread.sleep(latencyMillis);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        inFlight.decrementAndGet();
+        operations.incrementAndGet();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.SonarException;
+import org.sonar.plugins.visualstudio.VisualStudioItemClassifier.Action;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioItemClassifierTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void should_only_index_code_by_default() {
+    VisualStudioItemClassifier classifier = new VisualStudioItemClassifier(new Settings());
+
+    assertThat(classifier.action("Compile", "Foo.cs")).isEqualTo(Action.SOURCE);
+    assertThat(classifier.action("Content", "Scripts\\app.js")).isEqualTo(Action.SOURCE);
+    assertThat(classifier.action("Content", "Web.config")).isEqualTo(Action.IGNORE);
+    assertThat(classifier.action("Content", "Images\\logo.png")).isEqualTo(Action.IGNORE);
+    assertThat(classifier.action("EmbeddedResource", "Resources.resx")).isEqualTo(Action.IGNORE);
+  }
+
+  @Test
+  public void should_prefer_extension_rules() {
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ITEM_TYPE_ACTIONS_PROPERTY_KEY, "Compile=ignore, compile:.CS=source, Content:.feature=test");
+    VisualStudioItemClassifier classifier = new VisualStudioItemClassifier(settings);
+
+    assertThat(classifier.action("Compile", "Foo.cs")).isEqualTo(Action.SOURCE);
+    assertThat(classifier.action("Compile", "Foo.vb")).isEqualTo(Action.IGNORE);
+    assertThat(classifier.action("Content", "Specs/Login.FEATURE")).isEqualTo(Action.TEST);
+    assertThat(classifier.action("Content", "app.js")).isEqualTo(Action.IGNORE);
+  }
+
+  @Test
+  public void should_fail_on_invalid_rules() {
+    thrown.expect(SonarException.class);
+    thrown.expectMessage("Invalid rule \"Compile=index\"");
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ITEM_TYPE_ACTIONS_PROPERTY_KEY, "Compile=index");
+    new VisualStudioItemClassifier(settings);
+  }
+
+}
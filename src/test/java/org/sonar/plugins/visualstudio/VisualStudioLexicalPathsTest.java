@@ -0,0 +1,94 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioLexicalPathsTest {
+
+  @Test
+  public void should_normalize_unix_paths() {
+    assertThat(VisualStudioLexicalPaths.normalize("/work/Solution/Lib/Foo.cs")).isEqualTo("/work/Solution/Lib/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("/work//Solution/./Lib/../Shared/Foo.cs")).isEqualTo("/work/Solution/Shared/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("/work/Solution/Lib/")).isEqualTo("/work/Solution/Lib");
+    assertThat(VisualStudioLexicalPaths.normalize("/work/../../Foo.cs")).isEqualTo("/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("/work/..")).isEqualTo("/");
+    assertThat(VisualStudioLexicalPaths.normalize("/")).isEqualTo("/");
+  }
+
+  @Test
+  public void should_normalize_windows_paths() {
+    assertThat(VisualStudioLexicalPaths.normalize("c:\\Solution\\Lib\\..\\Shared\\Foo.cs")).isEqualTo("C:/Solution/Shared/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("C:/Solution\\Lib/Foo.cs")).isEqualTo("C:/Solution/Lib/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("C:\\Solution\\..\\..\\Foo.cs")).isEqualTo("C:/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("C:\\Solution\\")).isEqualTo("C:/Solution");
+    assertThat(VisualStudioLexicalPaths.normalize("C:\\")).isEqualTo("C:/");
+    assertThat(VisualStudioLexicalPaths.normalize("C:Lib\\Foo.cs")).isEqualTo("C:Lib/Foo.cs");
+  }
+
+  @Test
+  public void should_normalize_unc_paths() {
+    assertThat(VisualStudioLexicalPaths.normalize("\\\\server\\share\\Solution\\Lib\\Foo.cs")).isEqualTo("//server/share/Solution/Lib/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("\\\\server\\share\\Solution\\..\\..\\Foo.cs")).isEqualTo("//server/share/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("\\\\server\\share\\")).isEqualTo("//server/share");
+    assertThat(VisualStudioLexicalPaths.normalize("//server/share/Lib//")).isEqualTo("//server/share/Lib");
+  }
+
+  @Test
+  public void should_keep_leading_parent_segments_of_relative_paths() {
+    assertThat(VisualStudioLexicalPaths.normalize("Lib\\..\\..\\Shared\\.\\Foo.cs")).isEqualTo("../Shared/Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("../../Foo.cs")).isEqualTo("../../Foo.cs");
+    assertThat(VisualStudioLexicalPaths.normalize("Lib/..")).isEqualTo(".");
+    assertThat(VisualStudioLexicalPaths.normalize("")).isEqualTo(".");
+  }
+
+  @Test
+  public void should_normalize_files_as_canonical_paths() throws Exception {
+    File file = new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/MyLibrary/../MyLibrary/Adder.cs");
+    assertThat(VisualStudioLexicalPaths.normalize(file)).isEqualTo(file.getCanonicalPath().replace('\\', '/'));
+  }
+
+  @Test
+  public void should_check_containment() {
+    assertThat(VisualStudioLexicalPaths.isInDir("/work/Lib/Foo.cs", "/work/Lib")).isTrue();
+    assertThat(VisualStudioLexicalPaths.isInDir("/work/Lib/Sub/Foo.cs", "/work/Lib")).isTrue();
+    assertThat(VisualStudioLexicalPaths.isInDir("/work/Library/Foo.cs", "/work/Lib")).isFalse();
+    assertThat(VisualStudioLexicalPaths.isInDir("/work/Lib", "/work/Lib")).isFalse();
+    assertThat(VisualStudioLexicalPaths.isInDir("/Foo.cs", "/")).isTrue();
+    assertThat(VisualStudioLexicalPaths.isInDir("C:/Foo.cs", "C:/")).isTrue();
+  }
+
+  @Test
+  public void should_find_the_common_directory() {
+    assertThat(VisualStudioLexicalPaths.commonDir("/work/Lib/Foo.cs", "/work/Lib")).isEqualTo("/work/Lib");
+    assertThat(VisualStudioLexicalPaths.commonDir("/work/Shared/Foo.cs", "/work/Lib")).isEqualTo("/work");
+    assertThat(VisualStudioLexicalPaths.commonDir("/work/Library/Foo.cs", "/work/Lib")).isEqualTo("/work");
+    assertThat(VisualStudioLexicalPaths.commonDir("/other/Foo.cs", "/work/Lib")).isEqualTo("/");
+    assertThat(VisualStudioLexicalPaths.commonDir("C:/Shared/Foo.cs", "C:/Lib")).isEqualTo("C:/");
+    assertThat(VisualStudioLexicalPaths.commonDir("D:/Shared/Foo.cs", "C:/Lib")).isNull();
+    assertThat(VisualStudioLexicalPaths.commonDir("//server/share/Foo.cs", "//server/share/Lib")).isEqualTo("//server/share");
+    assertThat(VisualStudioLexicalPaths.commonDir("//other/share/Foo.cs", "//server/share/Lib")).isNull();
+  }
+
+}
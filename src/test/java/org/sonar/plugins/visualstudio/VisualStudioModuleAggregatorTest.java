@@ -0,0 +1,102 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioModuleAggregatorTest {
+
+  private static final File SOLUTION_DIR = new File("solution").getAbsoluteFile();
+
+  @Test
+  public void should_merge_small_projects_with_the_same_prefix() {
+    ProjectDefinition solution = ProjectDefinition.create().setKey("solution:key");
+    ProjectDefinition orders = module("Company.Contracts.Orders", "Contracts/Orders", "Order.cs");
+    orders.setProperty("sonar.cs.fxcop.timeoutMinutes", "10");
+    orders.setProperty("sonar.resharper.solutionFile", "solution.sln");
+    ProjectDefinition core = module("Company.Core", "Core", "A.cs", "B.cs", "C.cs");
+    ProjectDefinition invoices = module("Company.Contracts.Invoices", "Contracts/Invoices", "Invoice.cs");
+    invoices.setProperty("sonar.cs.fxcop.timeoutMinutes", "20");
+    invoices.setProperty("sonar.resharper.solutionFile", "solution.sln");
+    ProjectDefinition tests = module("Company.Contracts.Tests", "Contracts/Tests");
+    tests.addTests("OrderTest.cs");
+    ProjectDefinition misc = module("Misc", "Misc", "Misc.cs");
+
+    List<ProjectDefinition> modules = new VisualStudioModuleAggregator(2).aggregate(solution, ImmutableList.of(orders, core, invoices, tests, misc));
+
+    assertThat(modules).hasSize(4);
+    ProjectDefinition merged = modules.get(0);
+    assertThat(modules.subList(1, 4)).containsExactly(core, tests, misc);
+
+    assertThat(merged.getKey()).isEqualTo("solution:key:Company.Contracts_Group");
+    assertThat(merged.getName()).isEqualTo("Company.Contracts (2 projects)");
+    assertThat(merged.getBaseDir()).isEqualTo(new File(SOLUTION_DIR, "Contracts"));
+    assertThat(merged.getWorkDir()).isEqualTo(new File(".sonar", "solution_key_Company.Contracts_Group"));
+    assertThat(merged.sources()).containsExactly("Order.cs", "Invoice.cs");
+    assertThat(merged.tests()).isEmpty();
+
+    assertThat(merged.getProperties().getProperty("sonar.visualstudio.aggregatedProjects")).isEqualTo("Company.Contracts.Orders,Company.Contracts.Invoices");
+    assertThat(merged.getProperties().getProperty("sonar.resharper.solutionFile")).isEqualTo("solution.sln");
+    assertThat(merged.getProperties().getProperty("sonar.cs.fxcop.timeoutMinutes")).isNull();
+    assertThat(merged.getProperties().getProperty("sonar.visualstudio.aggregated.Company.Contracts.Orders.sonar.cs.fxcop.timeoutMinutes")).isEqualTo("10");
+    assertThat(merged.getProperties().getProperty("sonar.visualstudio.aggregated.Company.Contracts.Invoices.sonar.cs.fxcop.timeoutMinutes")).isEqualTo("20");
+    assertThat(merged.getProperties().getProperty("sonar.visualstudio.aggregated.Company.Contracts.Orders.files")).isEqualTo("Order.cs");
+  }
+
+  @Test
+  public void should_not_merge_projects_with_different_analyzer_properties() {
+    ProjectDefinition solution = ProjectDefinition.create().setKey("solution:key");
+    ProjectDefinition orders = module("Company.Contracts.Orders", "Contracts/Orders", "Order.cs");
+    orders.setProperty("sonar.cs.fxcop.assembly", "Orders.dll");
+    ProjectDefinition invoices = module("Company.Contracts.Invoices", "Contracts/Invoices", "Invoice.cs");
+    invoices.setProperty("sonar.cs.fxcop.assembly", "Invoices.dll");
+    ProjectDefinition events = module("Company.Contracts.Events", "Contracts/Events", "Event.cs");
+    ProjectDefinition commands = module("Company.Contracts.Commands", "Contracts/Commands", "Command.cs");
+
+    List<ProjectDefinition> modules = new VisualStudioModuleAggregator(2).aggregate(solution, ImmutableList.of(orders, events, invoices, commands));
+
+    assertThat(modules).hasSize(3);
+    assertThat(modules.get(0)).isSameAs(orders);
+    assertThat(modules.get(1).getName()).isEqualTo("Company.Contracts (2 projects)");
+    assertThat(modules.get(1).sources()).containsExactly("Event.cs", "Command.cs");
+    assertThat(modules.get(2)).isSameAs(invoices);
+    for (ProjectDefinition module : ImmutableList.of(orders, invoices)) {
+      assertThat(module.getProperties().getProperty("sonar.cs.fxcop.assembly")).isEqualTo(module.getName().substring("Company.Contracts.".length()) + ".dll");
+    }
+  }
+
+  private static ProjectDefinition module(String name, String path, String... sources) {
+    ProjectDefinition module = ProjectDefinition.create()
+      .setKey("solution:key:" + name)
+      .setName(name)
+      .setBaseDir(new File(SOLUTION_DIR, path))
+      .setWorkDir(new File(".sonar", "solution_key_" + name));
+    module.addSources(sources);
+    return module;
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioPathIndexTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_map_paths_to_modules() {
+    VisualStudioPathIndex index = index();
+
+    assertThat(index.size()).isEqualTo(4);
+    assertThat(index.moduleKey("/work/Solution/Lib/Foo.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/Lib/Sub/Bar.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/Shared/Shared.cs")).isEqualTo("solution:App");
+    assertThat(index.moduleKey("/work/Solution/App/Program.cs")).isEqualTo("solution:App");
+
+    assertThat(index.moduleKey("/work/Solution/Lib/Baz.cs")).isNull();
+    assertThat(index.moduleKey("/work/Solution/Lib")).isNull();
+    assertThat(index.moduleKey("/work/Solution/Lib/Foo.cs/Foo.cs")).isNull();
+    assertThat(index.moduleKey("")).isNull();
+  }
+
+  @Test
+  public void should_normalize_paths() {
+    VisualStudioPathIndex index = index();
+
+    assertThat(index.moduleKey("\\work\\Solution\\Lib\\Sub\\Bar.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/App/../Shared/./Shared.cs")).isEqualTo("solution:App");
+    assertThat(index.moduleKey("//work/Solution//Lib/Foo.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/App/../../../../Solution/Lib/Foo.cs")).isNull();
+  }
+
+  @Test
+  public void should_resolve_the_parent_segments_of_directories_without_files() {
+    VisualStudioPathIndex index = index();
+
+    assertThat(index.moduleKey("/work/Solution/obj/../Lib/Foo.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/Lib/obj/Debug/../../Sub/Bar.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/obj/../Lib/Baz.cs")).isNull();
+  }
+
+  @Test
+  public void should_match_case_variants() {
+    VisualStudioPathIndex index = index();
+    index.add("/work/Solution/App/Readme.cs", "solution:App");
+    index.add("/work/Solution/App/README.cs", "solution:Other");
+
+    assertThat(index.moduleKey("/WORK/solution/lib/sub/bar.CS")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/Solution/App/Readme.cs")).isEqualTo("solution:App");
+    assertThat(index.moduleKey("/work/Solution/App/README.cs")).isEqualTo("solution:Other");
+    assertThat(index.moduleKey("/work/Solution/App/readme.cs")).isNull();
+  }
+
+  @Test
+  public void should_write_and_read_the_index() throws Exception {
+    File file = new File(tmp.getRoot(), "index.bin");
+    index().write(file);
+
+    VisualStudioPathIndex index = VisualStudioPathIndex.read(file);
+    assertThat(index.size()).isEqualTo(4);
+    assertThat(index.moduleKey("/work/Solution/Lib/Sub/Bar.cs")).isEqualTo("solution:Lib");
+    assertThat(index.moduleKey("/work/solution/shared/shared.cs")).isEqualTo("solution:App");
+    assertThat(index.moduleKey("/work/Solution/Lib/Baz.cs")).isNull();
+  }
+
+  private static VisualStudioPathIndex index() {
+    VisualStudioPathIndex index = new VisualStudioPathIndex();
+    index.add("/work/Solution/Lib/Foo.cs", "solution:Lib");
+    index.add("/work/Solution/Lib/Sub/Bar.cs", "solution:Lib");
+    index.add("/work/Solution/App/../Shared/Shared.cs", "solution:App");
+    index.add("/work/Solution/App/Program.cs", "solution:App");
+    index.add("/work/Solution/App/Program.cs", "solution:App");
+    return index;
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioPathResolverTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_resolve_paths_regardless_of_their_case() throws Exception {
+    File projectDir = tmp.newFolder("Project");
+    File file = new File(projectDir, "foo/Bar.cs");
+    file.getParentFile().mkdirs();
+    file.createNewFile();
+    File otherFile = new File(tmp.getRoot(), "Shared/Common.cs");
+    otherFile.getParentFile().mkdirs();
+    otherFile.createNewFile();
+
+    VisualStudioPathResolver resolver = new VisualStudioPathResolver(true);
+    assertThat(resolver.resolve(projectDir, "foo\\Bar.cs")).isEqualTo(file);
+    assertThat(resolver.correctedPaths()).isEqualTo(0);
+
+    assertThat(resolver.resolve(projectDir, "Foo\\BAR.CS")).isEqualTo(file);
+    assertThat(resolver.resolve(projectDir, "Foo\\BAR.CS")).isEqualTo(file);
+    assertThat(resolver.resolve(projectDir, ".\\FOO/bar.cs")).isEqualTo(file);
+    assertThat(resolver.resolve(projectDir, "..\\shared\\common.CS").getCanonicalFile()).isEqualTo(otherFile.getCanonicalFile());
+    assertThat(resolver.correctedPaths()).isEqualTo(3);
+
+    assertThat(resolver.resolve(projectDir, "Foo\\Missing.cs")).isEqualTo(new File(projectDir, "Foo/Missing.cs"));
+    assertThat(resolver.correctedPaths()).isEqualTo(3);
+
+    assertThat(resolver.correctCase(projectDir, "FOO\\bar.cs")).isEqualTo(file);
+    assertThat(resolver.correctCase(projectDir, "Foo\\Missing.cs")).isNull();
+    assertThat(resolver.correctCase(projectDir, "foo")).isNull();
+    assertThat(new VisualStudioPathResolver(false).correctCase(projectDir, "FOO\\bar.cs")).isNull();
+  }
+
+  @Test
+  public void should_use_paths_as_is_when_case_sensitive() throws Exception {
+    File projectDir = tmp.newFolder("Project");
+    new File(projectDir, "Bar.cs").createNewFile();
+
+    VisualStudioPathResolver resolver = new VisualStudioPathResolver(false);
+    assertThat(resolver.resolve(projectDir, "BAR.CS")).isEqualTo(new File(projectDir, "BAR.CS"));
+    assertThat(resolver.correctedPaths()).isEqualTo(0);
+  }
+
+}
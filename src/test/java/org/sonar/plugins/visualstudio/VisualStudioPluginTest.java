@@ -33,13 +33,36 @@ public class VisualStudioPluginTest {
   public void test() {
     List extensions = new VisualStudioPlugin().getExtensions();
 
-    assertThat(nonProperties(extensions)).containsOnly(VisualStudioProjectBuilder.class);
+    assertThat(nonProperties(extensions)).containsOnly(VisualStudioProjectBuilder.class, VisualStudioSolutionModel.class);
     assertThat(propertyKeys(extensions)).containsOnly(
       "sonar.visualstudio.solution",
       "sonar.visualstudio.enable",
       "sonar.visualstudio.outputPaths",
       "sonar.visualstudio.testProjectPattern",
       "sonar.visualstudio.skippedProjects",
+      "sonar.visualstudio.hashFiles",
+      "sonar.visualstudio.pullRequest.changedFiles",
+      "sonar.visualstudio.pullRequest.changedFilesPath",
+      "sonar.visualstudio.verbose",
+      "sonar.visualstudio.excludeGeneratedCode",
+      "sonar.visualstudio.generatedFilePatterns",
+      "sonar.visualstudio.maxFileSize",
+      "sonar.visualstudio.itemTypeActions",
+      "sonar.visualstudio.prefetchBudget",
+      "sonar.visualstudio.shardCount",
+      "sonar.visualstudio.shardIndex",
+      "sonar.visualstudio.printShardPlan",
+      "sonar.visualstudio.aggregation.maxFiles",
+      "sonar.visualstudio.trace",
+      "sonar.visualstudio.sourcePatterns",
+      "sonar.visualstudio.remoteCache.url",
+      "sonar.visualstudio.remoteCache.timeout",
+      "sonar.visualstudio.caseSensitivePaths",
+      "sonar.visualstudio.evaluatedProjectsManifest",
+      "sonar.visualstudio.maxConcurrentIo",
+      "sonar.visualstudio.deferredVerification",
+      "sonar.visualstudio.deferredVerification.maxDiscrepancies",
+      "sonar.visualstudio.webSite.extensions",
 
       "sonar.dotnet.visualstudio.solution.file",
       "sonar.dotnet.buildConfiguration",
@@ -19,6 +19,14 @@
  */
 package org.sonar.plugins.visualstudio;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.sun.management.ThreadMXBean;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -30,8 +38,13 @@ import org.sonar.api.batch.bootstrap.ProjectBuilder.Context;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.PatternSyntaxException;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -41,6 +54,9 @@ import static org.mockito.Mockito.when;
 
 public class VisualStudioProjectBuilderTest {
 
+  // About 6 KB are allocated per item by all the threads, mostly to resolve and declare its path
+  private static final long ALLOCATION_BUDGET_PER_ITEM = 10 * 1024;
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
@@ -54,7 +70,7 @@ public class VisualStudioProjectBuilderTest {
 
     final File assemblyFile = mock(File.class);
     when(assemblyFile.getAbsolutePath()).thenReturn("c:/MyLibrary.dll");
-    VisualStudioAssemblyLocator assemblyLocator = mock(VisualStudioAssemblyLocator.class);
+    VisualStudioAssemblyLocator assemblyLocator = assemblyLocator();
     when(assemblyLocator.locateAssembly(Mockito.anyString(), Mockito.any(File.class), Mockito.any(VisualStudioProject.class))).thenAnswer(new Answer<File>() {
 
       @Override
@@ -102,7 +118,8 @@ public class VisualStudioProjectBuilderTest {
     assertThat(libraryProject.getProperties().get("sonar.cs.fxcop.assembly")).isEqualTo("c:/MyLibrary.dll");
 
     assertThat(libraryProject.getProperties().get("sonar.cs.fxcop.assembly")).isEqualTo("c:/MyLibrary.dll");
-    assertThat(libraryProject.getProperties().get("sonar.vbnet.fxcop.assembly")).isEqualTo("c:/MyLibrary.dll");
+    assertThat(libraryProject.getProperties().get("sonar.vbnet.fxcop.assembly")).isNull();
+    assertThat(libraryProject.getProperties().get("sonar.language")).isEqualTo("cs");
 
     assertThat(libraryProject.getProperties().get("sonar.resharper.solutionFile"))
       .isEqualTo(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/solution.sln").getAbsolutePath());
@@ -145,7 +162,7 @@ public class VisualStudioProjectBuilderTest {
     Settings settings = mock(Settings.class);
     when(settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY)).thenReturn(true);
     when(settings.getString("sonar.visualstudio.projectKeyStrategy")).thenReturn("unsafe");
-    new VisualStudioProjectBuilder(settings).build(context, mock(VisualStudioAssemblyLocator.class));
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
 
     ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
     verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
@@ -165,7 +182,7 @@ public class VisualStudioProjectBuilderTest {
     Settings settings = mock(Settings.class);
     when(settings.getBoolean(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY)).thenReturn(true);
     when(settings.getString("sonar.visualstudio.projectKeyStrategy")).thenReturn("unsafe");
-    new VisualStudioProjectBuilder(settings).build(context, mock(VisualStudioAssemblyLocator.class));
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
 
     ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
     verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
@@ -351,9 +368,840 @@ public class VisualStudioProjectBuilderTest {
     Settings settings = new Settings();
     settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
 
-    new VisualStudioProjectBuilder(settings).build(context);
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context);
 
     verify(solutionProject, Mockito.times(2)).addSubProject(Mockito.any(ProjectDefinition.class));
+    assertThat(builder.report().counter("case corrected paths")).isEqualTo(2);
+  }
+
+  @Test
+  public void should_use_the_model_of_the_watched_solution() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioSolutionWatcher watcher = Mockito.spy(new VisualStudioSolutionWatcher(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/solution.sln")));
+    new VisualStudioProjectBuilder(settings, watcher).build(context, assemblyLocator());
+    new VisualStudioProjectBuilder(settings, watcher).build(context, assemblyLocator());
+
+    verify(watcher, Mockito.times(2)).refresh();
+    verify(watcher, Mockito.times(2)).solution();
+    verify(watcher, Mockito.times(4)).project(Mockito.any(File.class));
+    verify(solutionProject, Mockito.times(4)).addSubProject(Mockito.any(ProjectDefinition.class));
+  }
+
+  @Test
+  public void should_refresh_the_watched_models_before_each_build() throws Exception {
+    File solutionDir = new File("target/VisualStudioProjectBuilderTest/watched_sln");
+    FileUtils.deleteQuietly(solutionDir);
+    FileUtils.copyDirectory(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"), solutionDir);
+    Context context = mockContext("solution:key", solutionDir);
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioSolutionWatcher watcher = new VisualStudioSolutionWatcher(new File(solutionDir, "solution.sln"));
+    new VisualStudioProjectBuilder(settings, watcher).build(context, assemblyLocator());
+
+    File projectFile = new File(solutionDir, "MyLibrary/MyLibrary.csproj");
+    Files.write(Files.toString(projectFile, Charsets.UTF_8).replace("<Compile Include=\"Adder.cs\" />", "<Compile Include=\"Adder.cs\" />\n<Compile Include=\"Subtractor.cs\" />"),
+      projectFile, Charsets.UTF_8);
+    Files.write("class Subtractor {}", new File(solutionDir, "MyLibrary/Subtractor.cs"), Charsets.UTF_8);
+    projectFile.setLastModified(projectFile.lastModified() + 10000);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings, watcher);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(4)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(2).sources()).containsOnly(
+      new File(solutionDir, "MyLibrary/Adder.cs").getAbsolutePath(),
+      new File(solutionDir, "MyLibrary/Subtractor.cs").getAbsolutePath());
+    assertThat(builder.report().counter("outdated watched projects")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_hash_files() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+    when(solutionProject.getWorkDir()).thenReturn(new File("target/VisualStudioProjectBuilderTest/hashes/.sonar"));
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_HASH_FILES_PROPERTY_KEY, true);
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(0).getProperties().getProperty(VisualStudioFileHasher.UNCHANGED_MODULE_PROPERTY_KEY)).isNotNull();
+    assertThat(new File("target/VisualStudioProjectBuilderTest/hashes/.sonar/visualstudio-file-hashes.txt").isFile()).isTrue();
+  }
+
+  @Test
+  public void should_only_build_the_projects_affected_by_the_changed_files() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY, "Core\\Core.cs");
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(0).getName()).isEqualTo("Core");
+    assertThat(subModules.getAllValues().get(1).getName()).isEqualTo("App");
+  }
+
+  @Test
+  public void should_build_all_projects_when_a_changed_file_belongs_to_no_project() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY, "Core\\Core.cs,Directory.Build.props");
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    verify(solutionProject, Mockito.times(3)).addSubProject(Mockito.any(ProjectDefinition.class));
+  }
+
+  @Test
+  public void should_ignore_the_changed_files_which_belong_to_no_project_and_cannot_change_the_build() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY, "Core\\Core.cs,README.md,.gitignore,build/ci.yml");
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(0).getName()).isEqualTo("Core");
+    assertThat(subModules.getAllValues().get(1).getName()).isEqualTo("App");
+  }
+
+  @Test
+  public void should_build_all_projects_when_the_solution_changed() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY, "solution.sln");
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    verify(solutionProject, Mockito.times(3)).addSubProject(Mockito.any(ProjectDefinition.class));
+  }
+
+  @Test
+  public void should_assign_each_file_to_a_single_module() throws Exception {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/linked_files/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(3)).addSubProject(subModules.capture());
+
+    File baseDir = new File("src/test/resources/VisualStudioProjectBuilderTest/linked_files/");
+    assertThat(subModules.getAllValues().get(0).sources()).containsOnly(new File(baseDir, "Root.cs").getAbsolutePath());
+    assertThat(subModules.getAllValues().get(1).sources()).containsOnly(
+      new File(baseDir, "B/B.cs").getAbsolutePath(),
+      new File(baseDir, "Shared/Shared.cs").getCanonicalPath());
+    assertThat(subModules.getAllValues().get(2).sources()).containsOnly(new File(baseDir, "A/A.cs").getAbsolutePath());
+  }
+
+  @Test
+  public void should_widen_the_base_directory_to_the_linked_files() throws Exception {
+    assertLinkedFilesWithinBaseDir(false);
+    assertLinkedFilesWithinBaseDir(true);
+  }
+
+  private static void assertLinkedFilesWithinBaseDir(boolean isVerificationDeferred) throws Exception {
+    File baseDir = new File("src/test/resources/VisualStudioProjectBuilderTest/linked_files/");
+    Context context = mockContext("solution:key", baseDir);
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, isVerificationDeferred);
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(3)).addSubProject(subModules.capture());
+
+    ProjectDefinition b = subModules.getAllValues().get(1);
+    assertThat(b.getBaseDir().getCanonicalFile()).isEqualTo(baseDir.getCanonicalFile());
+    assertThat(b.sources()).hasSize(2);
+    for (String source : b.sources()) {
+      assertThat(source).startsWith(b.getBaseDir().getAbsolutePath() + File.separator);
+    }
+    assertThat(b.sources()).contains(new File(baseDir, "Shared/Shared.cs").getCanonicalPath());
+    assertThat(subModules.getAllValues().get(2).getBaseDir().getCanonicalFile()).isEqualTo(new File(baseDir, "A").getCanonicalFile());
+  }
+
+  @Test
+  public void should_resolve_the_symbolic_links_of_the_files_and_directories() throws Exception {
+    Assume.assumeTrue(File.separatorChar == '/');
+
+    File baseDir = new File("target/VisualStudioProjectBuilderTest/symlinks");
+    FileUtils.deleteQuietly(baseDir);
+    FileUtils.copyDirectory(new File("src/test/resources/VisualStudioProjectBuilderTest/symlinks"), baseDir);
+    // "LinkedDir/../Foo.cs" is "Outside/Foo.cs" once the link is resolved, not "App/Foo.cs"
+    symlink(new File(baseDir, "App/LinkedDir"), "../Outside/Sub");
+    symlink(new File(baseDir, "App/Linked.cs"), "../Outside/Other.cs");
+
+    assertSymlinksResolved(baseDir, false);
+    assertSymlinksResolved(baseDir, true);
+  }
+
+  private static void symlink(File link, String target) throws Exception {
+    assertThat(Runtime.getRuntime().exec(new String[] {"ln", "-s", target, link.getAbsolutePath()}).waitFor()).isEqualTo(0);
+  }
+
+  private static void assertSymlinksResolved(File baseDir, boolean isVerificationDeferred) {
+    Context context = mockContext("solution:key", baseDir);
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, isVerificationDeferred);
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject).addSubProject(subModules.capture());
+    assertThat(subModules.getValue().sources()).containsOnly(new File(baseDir, "App/Program.cs").getAbsolutePath());
+  }
+
+  @Test
+  public void should_index_the_paths_of_the_module_files() throws Exception {
+    File baseDir = new File("src/test/resources/VisualStudioProjectBuilderTest/linked_files/");
+    Context context = mockContext("solution:key", baseDir);
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+    File workDir = new File("target/VisualStudioProjectBuilderTest/path_index/.sonar");
+    FileUtils.deleteQuietly(workDir);
+    when(solutionProject.getWorkDir()).thenReturn(workDir);
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioSolutionModel model = new VisualStudioSolutionModel();
+    new VisualStudioProjectBuilder(settings, model).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(3)).addSubProject(subModules.capture());
+    String sharedModuleKey = subModules.getAllValues().get(1).getKey();
+
+    String sharedPath = new File(baseDir, "Shared/Shared.cs").getCanonicalPath();
+    assertThat(model.moduleKey(sharedPath)).isEqualTo(sharedModuleKey);
+    assertThat(model.moduleKey(sharedPath.toUpperCase())).isEqualTo(sharedModuleKey);
+    assertThat(model.moduleKey(new File(baseDir, "A/../Shared/Shared.cs").getAbsolutePath())).isEqualTo(sharedModuleKey);
+    assertThat(model.moduleKey(new File(baseDir, "A/A.cs").getAbsolutePath())).isEqualTo(subModules.getAllValues().get(2).getKey());
+    assertThat(model.moduleKey(new File(baseDir, "A/Unknown.cs").getAbsolutePath())).isNull();
+
+    VisualStudioPathIndex pathIndex = VisualStudioPathIndex.read(new File(workDir, VisualStudioProjectBuilder.PATH_INDEX_FILE_NAME));
+    assertThat(pathIndex.size()).isEqualTo(model.pathIndex().size());
+    assertThat(pathIndex.moduleKey(sharedPath)).isEqualTo(sharedModuleKey);
+  }
+
+  @Test
+  public void should_write_diagnostics_details_in_verbose_mode() throws Exception {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+    File workDir = new File("target/VisualStudioProjectBuilderTest/diagnostics/.sonar");
+    when(solutionProject.getWorkDir()).thenReturn(workDir);
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_VERBOSE_PROPERTY_KEY, true);
+
+    new VisualStudioProjectBuilder(settings).build(context);
+
+    assertThat(Files.readLines(new File(workDir, "visualstudio-diagnostics.txt"), Charsets.UTF_8)).contains(
+      "FILE_OUTSIDE_PROJECT_DIR\tMyLibrary\t" + new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/MyLibrary/../OrphanFile.cs").getAbsolutePath(),
+      "MISSING_FILE\tMyLibrary\t" + new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/MyLibrary/Properties/AssemblyInfo.cs").getAbsolutePath());
+  }
+
+  @Test
+  public void should_share_the_diagnostics_of_the_assembly_locator() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    VisualStudioDiagnostics diagnostics = new VisualStudioDiagnostics(false);
+
+    new VisualStudioProjectBuilder(settings).build(context, new VisualStudioAssemblyLocator(settings, diagnostics));
+
+    assertThat(diagnostics.count(VisualStudioDiagnostics.Category.MISSING_FILE)).isEqualTo(1);
+    assertThat(diagnostics.count(VisualStudioDiagnostics.Category.ASSEMBLY_NOT_FOUND)).isEqualTo(2);
+  }
+
+  @Test
+  public void should_exclude_generated_and_oversized_files() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/generated_code/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY, "*.Designer.cs,Reference.cs");
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_MAX_FILE_SIZE_PROPERTY_KEY, 2);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModule = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject).addSubProject(subModule.capture());
+
+    File projectDir = new File("src/test/resources/VisualStudioProjectBuilderTest/generated_code/Lib/");
+    assertThat(subModule.getValue().sources()).containsOnly(
+      new File(projectDir, "Lib.cs").getAbsolutePath(),
+      new File(projectDir, "View.xaml.cs").getAbsolutePath());
+    assertThat(builder.report().counter("excluded generated files")).isEqualTo(4);
+    assertThat(builder.report().counter("excluded oversized files")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_verify_the_files_in_the_background_when_deferred() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, true);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
+
+    // The missing Properties/AssemblyInfo.cs is declared, then removed once verified
+    assertThat(subModules.getAllValues().get(0).sources()).containsOnly(
+      new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/MyLibrary/Adder.cs").getAbsolutePath());
+    assertThat(subModules.getAllValues().get(0).getProperties().getProperty("sonar.language")).isEqualTo("cs");
+    assertThat(builder.report().counter("deferred verification discrepancies")).isEqualTo(1);
+    assertThat(builder.report().counter("file system operations")).isEqualTo(0);
+  }
+
+  @Test
+  public void should_plan_the_shards_once_the_deferred_verification_is_complete() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY, 2);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY, 0);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(1)).addSubProject(subModules.capture());
+    for (String path : Iterables.concat(subModules.getValue().sources(), subModules.getValue().tests())) {
+      assertThat(new File(path).isFile()).isTrue();
+    }
+    assertThat(builder.report().counter("deferred verification discrepancies")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_exclude_generated_files_when_the_verification_is_deferred() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/generated_code/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_GENERATED_FILE_PATTERNS_PROPERTY_KEY, "*.Designer.cs,Reference.cs");
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_MAX_FILE_SIZE_PROPERTY_KEY, 2);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModule = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject).addSubProject(subModule.capture());
+
+    File projectDir = new File("src/test/resources/VisualStudioProjectBuilderTest/generated_code/Lib/");
+    assertThat(subModule.getValue().sources()).containsOnly(
+      new File(projectDir, "Lib.cs").getAbsolutePath(),
+      new File(projectDir, "View.xaml.cs").getAbsolutePath());
+    assertThat(builder.report().counter("excluded generated files")).isEqualTo(4);
+    assertThat(builder.report().counter("excluded oversized files")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_fail_when_the_deferred_verification_finds_too_many_discrepancies() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_MAX_DISCREPANCIES_PROPERTY_KEY, 0);
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("1 of the files listed in the Visual Studio projects do not match the workspace");
+    thrown.expectMessage("MISSING_FILE MyLibrary " + new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/MyLibrary/Properties/AssemblyInfo.cs").getAbsolutePath());
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+  }
+
+  @Test
+  public void should_not_exclude_generated_files_when_disabled() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/generated_code/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_EXCLUDE_GENERATED_CODE_PROPERTY_KEY, false);
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModule = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject).addSubProject(subModule.capture());
+    assertThat(subModule.getValue().sources()).hasSize(7);
+  }
+
+  @Test
+  public void should_only_build_the_projects_of_the_shard() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY, 3);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY, 2);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_PRINT_SHARD_PLAN_PROPERTY_KEY, true);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    verify(solutionProject, Mockito.times(1)).addSubProject(Mockito.any(ProjectDefinition.class));
+    assertThat(builder.report().counter("projects in other shards")).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_aggregate_small_projects_with_their_own_analyzer_properties() {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_AGGREGATION_MAX_FILES_PROPERTY_KEY, 5);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    // Each project has its own StyleCop project file and ReSharper project name
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(3)).addSubProject(subModules.capture());
+    for (ProjectDefinition subModule : subModules.getAllValues()) {
+      assertThat(subModule.getProperties().getProperty("sonar.stylecop.projectFilePath")).isNotNull();
+    }
+    assertThat(builder.report().counter("aggregated projects")).isEqualTo(0);
+  }
+
+  @Test
+  public void invalid_shard_index() {
+    thrown.expectMessage("The property \"sonar.visualstudio.shardIndex\" must be between 0 and 1, but is 2.");
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SHARD_COUNT_PROPERTY_KEY, 2);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_SHARD_INDEX_PROPERTY_KEY, 2);
+
+    new VisualStudioProjectBuilder(settings).build(mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/affected/")),
+      assemblyLocator());
+  }
+
+  @Test
+  public void should_write_trace_events() throws Exception {
+    Context context = mockContext("solution:key", new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"));
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+    File workDir = new File("target/VisualStudioProjectBuilderTest/trace/.sonar");
+    when(solutionProject.getWorkDir()).thenReturn(workDir);
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_TRACE_PROPERTY_KEY, true);
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    String trace = Files.toString(new File(workDir, "visualstudio-trace.json"), Charsets.UTF_8);
+    assertThat(trace).contains("\"name\":\"solution parsing\"");
+    assertThat(trace).contains("\"name\":\"project parsing MyLibrary\"");
+    assertThat(trace).contains("\"name\":\"file verification MyLibrary\"");
+    assertThat(trace).contains("\"name\":\"assembly location MyLibrary\"");
+    assertThat(trace).contains("\"name\":\"module creation MyLibrary\"");
+  }
+
+  @Test
+  public void should_use_evaluated_projects_instead_of_parsing_them() {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/");
+    Context context = mockContext("solution:key", solutionDir);
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    evaluatedProjects.add(new File(solutionDir, "MyLibrary/MyLibrary.csproj"), ImmutableList.of("Multiplier.cs"), ImmutableList.<String>of(), null, null, null);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings, null, evaluatedProjects);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(0).sources()).containsOnly(new File(solutionDir, "MyLibrary/Multiplier.cs").getAbsolutePath());
+    assertThat(subModules.getAllValues().get(1).sources()).containsOnly(new File(solutionDir, "MyLibraryTest/AdderTest.cs").getAbsolutePath());
+    assertThat(builder.report().counter("evaluated projects")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_use_the_projects_of_the_manifest() throws Exception {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/");
+    Context context = mockContext("solution:key", solutionDir);
+    ProjectDefinition solutionProject = context.projectReactor().getRoot();
+
+    File manifestFile = new File("target/VisualStudioProjectBuilderTest/manifest/projects.json");
+    Files.createParentDirs(manifestFile);
+    Files.write("{\"project\": \"" + new File(solutionDir, "MyLibrary/MyLibrary.csproj").getAbsolutePath() + "\", \"compileItems\": [\"Multiplier.cs\"]}\n",
+      manifestFile, Charsets.UTF_8);
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_EVALUATED_PROJECTS_MANIFEST_PROPERTY_KEY, manifestFile.getAbsolutePath());
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(solutionProject, Mockito.times(2)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(0).sources()).containsOnly(new File(solutionDir, "MyLibrary/Multiplier.cs").getAbsolutePath());
+    assertThat(builder.report().counter("evaluated projects")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_share_parsed_projects_through_the_remote_cache() throws Exception {
+    FileUtils.deleteQuietly(new File("target/VisualStudioProjectBuilderTest/remote_cache"));
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/");
+    VisualStudioCacheServer server = new VisualStudioCacheServer(new File("target/VisualStudioProjectBuilderTest/remote_cache"), 0);
+    server.start();
+    try {
+      Settings settings = new Settings();
+      settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+      settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_REMOTE_CACHE_URL_PROPERTY_KEY, "http://localhost:" + server.port());
+
+      VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+      builder.build(mockContext("solution:key", solutionDir), assemblyLocator());
+      assertThat(builder.report().counter("remote cache misses")).isEqualTo(2);
+      assertThat(builder.report().counter("remote cache hits")).isEqualTo(0);
+
+      Context context = mockContext("solution:key", solutionDir);
+      builder = new VisualStudioProjectBuilder(settings);
+      builder.build(context, assemblyLocator());
+      // MyLibrary lists a file outside of its directory, and so is not cached
+      assertThat(builder.report().counter("remote cache misses")).isEqualTo(1);
+      assertThat(builder.report().counter("remote cache hits")).isEqualTo(1);
+
+      ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+      verify(context.projectReactor().getRoot(), Mockito.times(2)).addSubProject(subModules.capture());
+      assertThat(subModules.getAllValues().get(0).sources()).containsOnly(new File(solutionDir, "MyLibrary/Adder.cs").getAbsolutePath());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void should_share_the_parsed_solution() {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/");
+    Context context = mockContext("solution:key", solutionDir);
+
+    File assemblyFile = new File(solutionDir, "MyLibrary/bin/Debug/MyLibrary.dll");
+    VisualStudioAssemblyLocator assemblyLocator = assemblyLocator();
+    when(assemblyLocator.locateAssembly(Mockito.eq("MyLibrary"), Mockito.any(File.class), Mockito.any(VisualStudioProject.class))).thenReturn(assemblyFile);
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioSolutionModel model = new VisualStudioSolutionModel();
+    new VisualStudioProjectBuilder(settings, model).build(context, assemblyLocator);
+
+    assertThat(model.solutionFile()).isEqualTo(new File(solutionDir, "solution.sln").getAbsoluteFile());
+    assertThat(model.solution().projects()).hasSize(3);
+    assertThat(ImmutableList.copyOf(model.projectNames())).containsExactly("MyLibrary", "MyLibraryTest");
+    assertThat(model.projectFile("MyLibrary")).isEqualTo(new File(solutionDir, "MyLibrary/MyLibrary.csproj"));
+    assertThat(model.project("MyLibrary").files()).contains("Adder.cs");
+    assertThat(model.project("Unknown")).isNull();
+    assertThat(model.projectName("solution:key:MyLibraryTest")).isEqualTo("MyLibraryTest");
+    assertThat(model.assembly("MyLibrary")).isEqualTo(assemblyFile);
+    assertThat(model.assembly("MyLibraryTest")).isNull();
+    assertThat(model.owner(new File(solutionDir, "MyLibrary/Adder.cs"))).isEqualTo("MyLibrary");
+    assertThat(model.owner(new File(solutionDir, "MyLibrary/Unknown.cs"))).isNull();
+  }
+
+  @Test
+  public void should_list_the_files_of_web_sites() {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/web_site/");
+    Context context = mockContext("solution:key", solutionDir);
+
+    VisualStudioAssemblyLocator assemblyLocator = assemblyLocator();
+    when(assemblyLocator.locateAssembly(Mockito.anyString(), Mockito.any(File.class), Mockito.any(VisualStudioProject.class))).thenReturn(new File("c:/Assembly.dll"));
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioSolutionModel model = new VisualStudioSolutionModel();
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings, model);
+    builder.build(context, assemblyLocator);
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(context.projectReactor().getRoot(), Mockito.times(2)).addSubProject(subModules.capture());
+
+    File siteDir = new File(solutionDir, "WebSite");
+    ProjectDefinition webSite = subModules.getAllValues().get(0);
+    assertThat(webSite.getKey()).isEqualTo("solution:key:WebSite");
+    assertThat(webSite.getBaseDir().getAbsoluteFile()).isEqualTo(siteDir.getAbsoluteFile());
+    assertThat(webSite.sources()).containsOnly(
+      new File(siteDir, "App_Code/Helper.cs").getAbsolutePath(),
+      new File(siteDir, "Default.aspx.cs").getAbsolutePath(),
+      new File(siteDir, "Scripts/site.js").getAbsolutePath());
+    assertThat(webSite.getProperties().get("sonar.cs.fxcop.assembly")).isNull();
+    assertThat(webSite.getProperties().get("sonar.stylecop.projectFilePath")).isNull();
+    assertThat(webSite.getProperties().get("sonar.resharper.projectName")).isEqualTo("WebSite");
+
+    ProjectDefinition library = subModules.getAllValues().get(1);
+    assertThat(library.getProperties().get("sonar.cs.fxcop.assembly")).isEqualTo(new File("c:/Assembly.dll").getAbsolutePath());
+
+    assertThat(model.project("WebSite").itemType("App_Code/Helper.cs")).isEqualTo("Compile");
+    assertThat(model.project("WebSite").itemType("Scripts/site.js")).isEqualTo("Content");
+    assertThat(model.projectFile("WebSite")).isNull();
+    assertThat(model.webSiteDir("WebSite").getAbsoluteFile()).isEqualTo(siteDir.getAbsoluteFile());
+    assertThat(model.webSiteDir("Lib")).isNull();
+    assertThat(builder.report().counter("web sites")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_only_build_the_web_sites_affected_by_the_changed_files() {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/web_site/");
+
+    Context context = mockContext("solution:key", solutionDir);
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY, "WebSite\\Scripts\\site.js");
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(context.projectReactor().getRoot()).addSubProject(subModules.capture());
+    assertThat(subModules.getValue().getName()).isEqualTo("WebSite");
+
+    context = mockContext("solution:key", solutionDir);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_CHANGED_FILES_PROPERTY_KEY, "Lib\\Lib.cs");
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(context.projectReactor().getRoot()).addSubProject(subModules.capture());
+    assertThat(subModules.getValue().getName()).isEqualTo("Lib");
+  }
+
+  @Test
+  public void should_set_the_language_of_single_language_modules() {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/mixed_languages/");
+    Context context = mockContext("solution:key", solutionDir);
+
+    VisualStudioAssemblyLocator assemblyLocator = assemblyLocator();
+    when(assemblyLocator.locateAssembly(Mockito.anyString(), Mockito.any(File.class), Mockito.any(VisualStudioProject.class))).thenReturn(new File("c:/Assembly.dll"));
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+    builder.build(context, assemblyLocator);
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(context.projectReactor().getRoot(), Mockito.times(2)).addSubProject(subModules.capture());
+
+    ProjectDefinition vbProject = subModules.getAllValues().get(0);
+    assertThat(vbProject.getProperties().get("sonar.language")).isEqualTo("vbnet");
+    assertThat(vbProject.getProperties().get("sonar.vbnet.fxcop.assembly")).isEqualTo(new File("c:/Assembly.dll").getAbsolutePath());
+    assertThat(vbProject.getProperties().get("sonar.cs.fxcop.assembly")).isNull();
+
+    ProjectDefinition webProject = subModules.getAllValues().get(1);
+    assertThat(webProject.sources()).hasSize(2);
+    assertThat(webProject.getProperties().get("sonar.language")).isNull();
+    assertThat(webProject.getProperties().get("sonar.cs.fxcop.assembly")).isEqualTo(new File("c:/Assembly.dll").getAbsolutePath());
+    assertThat(webProject.getProperties().get("sonar.vbnet.fxcop.assembly")).isNull();
+
+    assertThat(builder.report().counter("single language modules")).isEqualTo(1);
+  }
+
+  @Test
+  public void should_not_override_the_language() {
+    File solutionDir = new File("src/test/resources/VisualStudioProjectBuilderTest/mixed_languages/");
+    Context context = mockContext("solution:key", solutionDir);
+
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty("sonar.language", "cs");
+
+    new VisualStudioProjectBuilder(settings).build(context, assemblyLocator());
+
+    ArgumentCaptor<ProjectDefinition> subModules = ArgumentCaptor.forClass(ProjectDefinition.class);
+    verify(context.projectReactor().getRoot(), Mockito.times(2)).addSubProject(subModules.capture());
+    assertThat(subModules.getAllValues().get(0).getProperties().get("sonar.language")).isNull();
+  }
+
+  @Test
+  public void should_allocate_little_per_project_item() throws Exception {
+    ThreadMXBean allocationBean = allocationBean();
+    Assume.assumeNotNull(allocationBean);
+
+    File smallSolutionDir = solutionWithItems("small", 200);
+    File largeSolutionDir = solutionWithItems("large", 2000);
+
+    for (boolean isVerificationDeferred : new boolean[] {false, true}) {
+      // Warm up
+      for (int i = 0; i < 3; i++) {
+        allocatedBytes(allocationBean, smallSolutionDir, isVerificationDeferred);
+        allocatedBytes(allocationBean, largeSolutionDir, isVerificationDeferred);
+      }
+
+      long bytesPerItem = (allocatedBytes(allocationBean, largeSolutionDir, isVerificationDeferred)
+        - allocatedBytes(allocationBean, smallSolutionDir, isVerificationDeferred)) / (2000 - 200);
+      assertThat(bytesPerItem).isLessThan(ALLOCATION_BUDGET_PER_ITEM);
+    }
+  }
+
+  @Test
+  public void should_not_allocate_when_escaping_ascii_project_names() {
+    ThreadMXBean allocationBean = allocationBean();
+    Assume.assumeNotNull(allocationBean);
+
+    String projectName = "Company.Project_Name-1";
+    VisualStudioProjectBuilder.escapeProjectName(projectName);
+    long threadId = Thread.currentThread().getId();
+    long start = allocationBean.getThreadAllocatedBytes(threadId);
+    boolean isUnchanged = true;
+    for (int i = 0; i < 10000; i++) {
+      isUnchanged &= VisualStudioProjectBuilder.escapeProjectName(projectName) == projectName;
+    }
+    long allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId) - start;
+
+    assertThat(isUnchanged).isTrue();
+    assertThat(allocatedBytes).isLessThan(10000);
+  }
+
+  /**
+   * @return the bean measuring the memory allocated by each thread, or null if not supported by this JVM
+   */
+  private static ThreadMXBean allocationBean() {
+    java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!(threadBean instanceof ThreadMXBean)) {
+      return null;
+    }
+    ThreadMXBean allocationBean = (ThreadMXBean) threadBean;
+    return allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled() ? allocationBean : null;
+  }
+
+  /**
+   * @return the memory allocated by all the threads while building, including the I/O threads of the builder, which are
+   * sampled until they terminate
+   */
+  private static long allocatedBytes(final ThreadMXBean allocationBean, File solutionDir, boolean isVerificationDeferred) throws Exception {
+    Settings settings = new Settings();
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_ENABLE_PROPERTY_KEY, true);
+    settings.setProperty(VisualStudioPlugin.VISUAL_STUDIO_DEFERRED_VERIFICATION_PROPERTY_KEY, isVerificationDeferred);
+    Context context = mockContext("solution:key", solutionDir);
+    VisualStudioAssemblyLocator assemblyLocator = assemblyLocator();
+    VisualStudioProjectBuilder builder = new VisualStudioProjectBuilder(settings);
+
+    final Map<Long, Long> startBytes = Maps.newHashMap();
+    sampleAllocatedBytes(allocationBean, startBytes);
+    final Map<Long, Long> endBytes = Maps.newHashMap();
+    final AtomicBoolean isBuilt = new AtomicBoolean();
+    Thread sampler = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!isBuilt.get()) {
+          sampleAllocatedBytes(allocationBean, endBytes);
+          try {
+            Thread.sleep(1);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    });
+    sampler.start();
+
+    builder.build(context, assemblyLocator);
+    isBuilt.set(true);
+    sampler.join();
+    sampleAllocatedBytes(allocationBean, endBytes);
+
+    long result = 0;
+    for (Map.Entry<Long, Long> entry : endBytes.entrySet()) {
+      if (entry.getKey() != sampler.getId()) {
+        Long start = startBytes.get(entry.getKey());
+        result += entry.getValue() - (start == null ? 0 : start);
+      }
+    }
+    return result;
+  }
+
+  private static void sampleAllocatedBytes(ThreadMXBean allocationBean, Map<Long, Long> allocatedBytes) {
+    long[] threadIds = allocationBean.getAllThreadIds();
+    long[] bytes = allocationBean.getThreadAllocatedBytes(threadIds);
+    for (int i = 0; i < threadIds.length; i++) {
+      // -1 for the threads which terminated in the meantime, whose last sample is kept
+      if (bytes[i] >= 0) {
+        allocatedBytes.put(threadIds[i], bytes[i]);
+      }
+    }
+  }
+
+  private static File solutionWithItems(String name, int items) throws IOException {
+    File solutionDir = new File("target/VisualStudioProjectBuilderTest/allocation/" + name);
+    FileUtils.deleteQuietly(solutionDir);
+    File projectDir = new File(solutionDir, "Library");
+
+    StringBuilder project = new StringBuilder("<Project xmlns=\"http://schemas.microsoft.com/developer/msbuild/2003\">\n  <ItemGroup>\n");
+    for (int i = 0; i < items; i++) {
+      String path = "Folder" + (i % 10) + "/Class" + i + ".cs";
+      Files.createParentDirs(new File(projectDir, path));
+      Files.write("class Class" + i + " {}", new File(projectDir, path), Charsets.UTF_8);
+      project.append("    <Compile Include=\"").append(path.replace('/', '\\')).append("\" />\n");
+    }
+    project.append("  </ItemGroup>\n</Project>\n");
+    Files.write(project.toString(), new File(projectDir, "Library.csproj"), Charsets.UTF_8);
+    Files.write("Project(\"{FAE04EC0-301F-11D3-BF4B-00C04F79EFBC}\") = \"Library\", \"Library\\Library.csproj\", \"{3A865091-31FB-4454-8AC4-3B2467019A49}\"\nEndProject\n",
+      new File(solutionDir, "solution.sln"), Charsets.UTF_8);
+    return solutionDir;
+  }
+
+  private static VisualStudioAssemblyLocator assemblyLocator() {
+    VisualStudioAssemblyLocator assemblyLocator = mock(VisualStudioAssemblyLocator.class);
+    when(assemblyLocator.diagnostics()).thenReturn(new VisualStudioDiagnostics(false));
+    return assemblyLocator;
   }
 
   private static Context mockContext(String key, File baseDir) {
@@ -0,0 +1,142 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.MessageException;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioProjectManifestTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void should_read_projects() throws Exception {
+    File manifestFile = manifest(
+      "{\"project\": \"Lib\\\\Lib.csproj\", \"compileItems\": [\"Foo.cs\", \"Sub\\\\Bar.cs\", \"..\\\\Shared\\\\Version.cs\"], \"autoGeneratedItems\": [\"Sub/Bar.cs\"], \"projectReferences\": [\"..\\\\Core\\\\Core.csproj\"],"
+        + " \"targetPath\": \"bin\\\\Debug\\\\Lib.dll\", \"configuration\": \"Debug\", \"platform\": \"AnyCPU\", \"extra\": {\"a\": [1, true, null]}}",
+      "",
+      "  {\"compileItems\": [\"Core.cs\", \"\\u00e9t\\u00e9.cs\"], \"targetPath\": null, \"project\": \"Core/Core.csproj\"}");
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    assertThat(new VisualStudioProjectManifest(manifestFile).read(evaluatedProjects, null)).isEqualTo(2);
+
+    VisualStudioProject lib = evaluatedProjects.project(new File(tmp.getRoot(), "Lib/Lib.csproj"));
+    assertThat(lib.files()).containsExactly("Foo.cs", "Sub\\Bar.cs", "..\\Shared\\Version.cs");
+    assertThat(ImmutableList.copyOf(lib.autoGeneratedFiles())).containsExactly("Sub\\Bar.cs");
+    assertThat(ImmutableList.copyOf(lib.linkedFiles())).containsExactly("..\\Shared\\Version.cs");
+    assertThat(lib.projectReferences()).containsExactly("..\\Core\\Core.csproj");
+    assertThat(lib.assemblyName()).isEqualTo("Lib");
+    assertThat(lib.outputPaths()).containsExactly("bin/Debug");
+    assertThat(lib.propertyGroupConditions()).containsExactly(" '$(Configuration)|$(Platform)' == 'Debug|AnyCPU' ");
+
+    VisualStudioProject core = evaluatedProjects.project(new File(tmp.getRoot(), "Core/Core.csproj"));
+    assertThat(core.files()).containsExactly("Core.cs", "été.cs");
+    assertThat(core.assemblyName()).isNull();
+  }
+
+  @Test
+  public void should_skip_the_projects_not_in_the_solution() throws Exception {
+    File manifestFile = manifest(
+      "{\"project\": \"Lib/Lib.csproj\", \"compileItems\": [\"Foo.cs\"]}",
+      "{\"project\": \"Other/Other.csproj\", \"compileItems\": [\"Other.cs\"], \"targetPath\": \"bin/Other.dll\"}");
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    int count = new VisualStudioProjectManifest(manifestFile).read(evaluatedProjects, ImmutableSet.of(new File(tmp.getRoot(), "Lib/Lib.csproj").getCanonicalFile()));
+
+    assertThat(count).isEqualTo(1);
+    assertThat(evaluatedProjects.size()).isEqualTo(1);
+    assertThat(evaluatedProjects.project(new File(tmp.getRoot(), "Other/Other.csproj"))).isNull();
+  }
+
+  @Test
+  public void should_stream_large_manifests() throws Exception {
+    File manifestFile = tmp.newFile("manifest.json");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("{\"project\": \"P").append(i).append("/P").append(i).append(".csproj\", \"compileItems\": [");
+      for (int j = 0; j < 1000; j++) {
+        sb.append(j == 0 ? "" : ", ").append("\"Folder/File").append(j).append(".cs\"");
+      }
+      sb.append("]}\n");
+    }
+    Files.write(sb.toString(), manifestFile, Charsets.UTF_8);
+
+    VisualStudioEvaluatedProjects evaluatedProjects = new VisualStudioEvaluatedProjects();
+    new VisualStudioProjectManifest(manifestFile).read(evaluatedProjects, ImmutableSet.of(new File(tmp.getRoot(), "P42/P42.csproj").getCanonicalFile()));
+
+    assertThat(evaluatedProjects.size()).isEqualTo(1);
+    assertThat(evaluatedProjects.project(new File(tmp.getRoot(), "P42/P42.csproj")).files()).hasSize(1000);
+  }
+
+  @Test
+  public void should_fail_on_missing_project() throws Exception {
+    File manifestFile = manifest(
+      "{\"project\": \"Lib/Lib.csproj\"}",
+      "{\"compileItems\": [\"Foo.cs\"]}");
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Missing \"project\" in the record starting at line 2 of the evaluated projects manifest");
+    new VisualStudioProjectManifest(manifestFile).read(new VisualStudioEvaluatedProjects(), null);
+  }
+
+  @Test
+  public void should_fail_on_invalid_json() throws Exception {
+    File manifestFile = manifest(
+      "{\"project\": \"Lib/Lib.csproj\"}",
+      "{\"project\" \"Other/Other.csproj\"}");
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Expected ':' but got '\"' at line 2 of the evaluated projects manifest");
+    new VisualStudioProjectManifest(manifestFile).read(new VisualStudioEvaluatedProjects(), null);
+  }
+
+  @Test
+  public void should_fail_on_missing_manifest() {
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("does not exist");
+    new VisualStudioProjectManifest(new File(tmp.getRoot(), "missing.json")).read(new VisualStudioEvaluatedProjects(), null);
+  }
+
+  private File manifest(String... lines) throws Exception {
+    File manifestFile = tmp.newFile("manifest.json");
+    StringBuilder sb = new StringBuilder();
+    for (String line : lines) {
+      sb.append(line).append('\n');
+    }
+    Files.write(sb.toString(), manifestFile, Charsets.UTF_8);
+    return manifestFile;
+  }
+
+}
@@ -40,7 +40,12 @@ public class VisualStudioProjectParserTest {
       "Adder.cs",
       "bootstrap.scss",
       "Properties\\AssemblyInfo.cs",
+      "..\\Shared\\Shared.cs",
       "Content\\bootstrap.css");
+    assertThat(project.linkedFiles()).containsOnly("..\\Shared\\Shared.cs");
+    assertThat(project.itemType("Adder.cs")).isEqualTo("Compile");
+    assertThat(project.itemType("bootstrap.scss")).isEqualTo("Content");
+    assertThat(project.itemType("Content\\bootstrap.css")).isEqualTo("EmbeddedResource");
     assertThat(project.outputType()).isEqualTo("Library");
     assertThat(project.assemblyName()).isEqualTo("MyLibrary");
     assertThat(project.propertyGroupConditions()).containsExactly(
@@ -49,6 +54,16 @@ public class VisualStudioProjectParserTest {
     assertThat(project.outputPaths()).containsExactly(
       "bin\\Debug\\",
       "bin\\Release\\");
+    assertThat(project.projectReferences()).containsExactly("..\\Core\\Core.csproj");
+  }
+
+  @Test
+  public void generated() {
+    VisualStudioProject project = new VisualStudioProjectParser().parse(new File("src/test/resources/VisualStudioProjectParserTest/generated.csproj"));
+
+    assertThat(project.files()).hasSize(7);
+    assertThat(project.autoGeneratedFiles()).containsOnly("Model.cs", "Settings.cs");
+    assertThat(project.linkedFiles()).isEmpty();
   }
 
   @Test
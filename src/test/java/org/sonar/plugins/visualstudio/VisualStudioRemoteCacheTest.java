@@ -0,0 +1,137 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.ServerSocket;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioRemoteCacheTest {
+
+  private static final File PROJECT_FILE = new File("src/test/resources/VisualStudioProjectParserTest/generated.csproj");
+  private static final File LINKING_PROJECT_FILE = new File("src/test/resources/VisualStudioProjectParserTest/valid.csproj");
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private File cacheDir;
+  private VisualStudioCacheServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = tmp.newFolder("cache");
+    server = new VisualStudioCacheServer(cacheDir, 0);
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void should_share_parsed_projects() {
+    VisualStudioProject project = new VisualStudioProjectParser().parse(PROJECT_FILE);
+
+    VisualStudioRemoteCache cache = new VisualStudioRemoteCache("http://localhost:" + server.port(), 2000);
+    String key = cache.key(PROJECT_FILE);
+    assertThat(key).isNotNull();
+    assertThat(cache.get(key)).isNull();
+    cache.put(key, project);
+
+    VisualStudioRemoteCache otherCache = new VisualStudioRemoteCache("http://localhost:" + server.port() + "/", 2000);
+    assertThat(otherCache.key(PROJECT_FILE)).isEqualTo(key);
+    VisualStudioProject cachedProject = otherCache.get(key);
+    assertThat(cachedProject.files()).isEqualTo(project.files());
+    assertThat(cachedProject.outputType()).isEqualTo(project.outputType());
+    assertThat(cachedProject.assemblyName()).isEqualTo(project.assemblyName());
+    assertThat(cachedProject.propertyGroupConditions()).isEqualTo(project.propertyGroupConditions());
+    assertThat(cachedProject.outputPaths()).isEqualTo(project.outputPaths());
+    assertThat(cachedProject.projectReferences()).isEqualTo(project.projectReferences());
+    assertThat(cachedProject.linkedFiles()).isEqualTo(project.linkedFiles());
+    assertThat(cachedProject.autoGeneratedFiles()).isEqualTo(project.autoGeneratedFiles());
+    for (String file : project.files()) {
+      assertThat(cachedProject.itemType(file)).isEqualTo(project.itemType(file));
+    }
+    assertThat(otherCache.isAvailable()).isTrue();
+  }
+
+  @Test
+  public void should_not_share_projects_with_files_outside_of_their_directory() throws Exception {
+    VisualStudioRemoteCache cache = new VisualStudioRemoteCache("http://localhost:" + server.port(), 2000);
+    String key = cache.key(LINKING_PROJECT_FILE);
+    cache.put(key, new VisualStudioProjectParser().parse(LINKING_PROJECT_FILE));
+    assertThat(cache.get(key)).isNull();
+
+    VisualStudioProject project = new VisualStudioProject(ImmutableList.of("Foo.cs", "C:\\Windows\\win.ini"), null, null, ImmutableList.<String>of(),
+      ImmutableList.<String>of());
+    Files.write(VisualStudioRemoteCache.encode(project), new File(cacheDir, "poisoned"));
+    assertThat(cache.get("poisoned")).isNull();
+    assertThat(cache.isAvailable()).isTrue();
+
+    assertThat(VisualStudioRemoteCache.isCacheable(project)).isFalse();
+    assertThat(VisualStudioRemoteCache.isCacheable(new VisualStudioProject(ImmutableList.of("Foo\\..\\..\\Bar.cs"), null, null, ImmutableList.<String>of(),
+      ImmutableList.<String>of()))).isFalse();
+    assertThat(VisualStudioRemoteCache.isCacheable(new VisualStudioProject(ImmutableList.of("/etc/passwd"), null, null, ImmutableList.<String>of(),
+      ImmutableList.<String>of()))).isFalse();
+    assertThat(VisualStudioRemoteCache.isCacheable(new VisualStudioProject(ImmutableList.of("Foo\\..\\Bar.cs"), null, null, ImmutableList.<String>of(),
+      ImmutableList.<String>of()))).isTrue();
+  }
+
+  @Test
+  public void should_be_disabled_after_the_first_failure() throws Exception {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+
+    VisualStudioRemoteCache cache = new VisualStudioRemoteCache("http://localhost:" + port, 500);
+    String key = cache.key(PROJECT_FILE);
+    assertThat(cache.get(key)).isNull();
+    assertThat(cache.isAvailable()).isFalse();
+    assertThat(cache.key(PROJECT_FILE)).isNull();
+    cache.put(key, new VisualStudioProjectParser().parse(PROJECT_FILE));
+  }
+
+  @Test
+  public void should_reject_invalid_keys() {
+    VisualStudioRemoteCache cache = new VisualStudioRemoteCache("http://localhost:" + server.port(), 2000);
+    assertThat(cache.get("..%2Fsecret")).isNull();
+    assertThat(cache.isAvailable()).isFalse();
+  }
+
+  @Test
+  public void should_reject_dot_only_keys() {
+    for (String key : new String[] {".", ".."}) {
+      VisualStudioRemoteCache cache = new VisualStudioRemoteCache("http://localhost:" + server.port(), 2000);
+      cache.put(key, new VisualStudioProjectParser().parse(PROJECT_FILE));
+      assertThat(cache.isAvailable()).isFalse();
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioShardPlannerTest {
+
+  private final Map<String, Long> fileSizes = Maps.newHashMap();
+
+  @Test
+  public void should_balance_the_costs() throws Exception {
+    ProjectDefinition big = module("Big", 400 * 1024);
+    ProjectDefinition medium = module("Medium", 200 * 1024);
+    ProjectDefinition small1 = module("Small1", 100 * 1024);
+    ProjectDefinition small2 = module("Small2", 100 * 1024);
+
+    List<VisualStudioShardPlanner.Shard> shards = new VisualStudioShardPlanner(2).plan(ImmutableList.of(small1, big, small2, medium), fileSizes);
+
+    assertThat(shards).hasSize(2);
+    assertThat(shards.get(0).modules()).containsExactly(big);
+    assertThat(shards.get(1).modules()).containsExactly(small1, small2, medium);
+    assertThat(shards.get(1).toString()).startsWith("Shard 1 (cost ").endsWith("): [Small1, Small2, Medium]");
+  }
+
+  @Test
+  public void should_be_stable_despite_small_changes() throws Exception {
+    ProjectDefinition a = module("A", 100 * 1024);
+    ProjectDefinition b = module("B", 100 * 1024 + 400);
+    ProjectDefinition c = module("C", 50 * 1024);
+
+    List<VisualStudioShardPlanner.Shard> shards = new VisualStudioShardPlanner(2).plan(ImmutableList.of(b, a, c), fileSizes);
+    // B is slightly bigger than A, but they have the same rounded cost and are assigned by key order
+    assertThat(shards.get(0).modules()).containsExactly(a, c);
+    assertThat(shards.get(1).modules()).containsExactly(b);
+  }
+
+  @Test
+  public void should_count_test_files_for_half() throws Exception {
+    ProjectDefinition sources = module("Sources", 100 * 1024);
+    ProjectDefinition tests = module("Tests", 0);
+    File testFile = new File("Tests.cs");
+    fileSizes.put(testFile.getAbsolutePath(), 200L * 1024);
+    tests.addTests(testFile);
+
+    List<VisualStudioShardPlanner.Shard> shards = new VisualStudioShardPlanner(1).plan(ImmutableList.of(sources, tests), fileSizes);
+    assertThat(shards.get(0).modules()).containsExactly(sources, tests);
+    assertThat(shards.get(0).cost()).isGreaterThan(2 * (100 + 4) * 1024 - 20 * 1024).isLessThan(2 * (100 + 4) * 1024 + 20 * 1024 + 4 * 1024);
+  }
+
+  @Test
+  public void should_count_the_assembly_overhead() {
+    ProjectDefinition library = module("Library", 100 * 1024);
+    library.setProperty("sonar.cs.fxcop.assembly", "Library.dll");
+    ProjectDefinition webSite = module("WebSite", 100 * 1024);
+
+    List<VisualStudioShardPlanner.Shard> shards = new VisualStudioShardPlanner(2).plan(ImmutableList.of(webSite, library), fileSizes);
+    assertThat(shards.get(0).modules()).containsExactly(library);
+    assertThat(shards.get(0).cost()).isGreaterThan(shards.get(1).cost() + 200 * 1024);
+  }
+
+  private ProjectDefinition module(String name, int size) {
+    ProjectDefinition module = ProjectDefinition.create().setKey("solution:" + name).setName(name);
+    if (size > 0) {
+      File file = new File(name + ".cs");
+      fileSizes.put(file.getAbsolutePath(), (long) size);
+      module.addSources(file);
+    }
+    return module;
+  }
+
+}
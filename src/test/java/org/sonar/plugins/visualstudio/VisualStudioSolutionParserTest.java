@@ -41,6 +41,7 @@ public class VisualStudioSolutionParserTest {
     VisualStudioSolutionProject project = solution.projects().get(0);
     assertThat(project.name()).isEqualTo("MyLibrary");
     assertThat(project.path()).isEqualTo("MyLibrary\\MyLibrary.csproj");
+    assertThat(project.type()).isEqualTo("{FAE04EC0-301F-11D3-BF4B-00C04F79EFBC}");
 
     project = solution.projects().get(1);
     assertThat(project.name()).isEqualTo("MyLibraryTest");
@@ -30,6 +30,14 @@ public class VisualStudioSolutionProjectTest {
     VisualStudioSolutionProject project = new VisualStudioSolutionProject("foo", "bar");
     assertThat(project.name()).isEqualTo("foo");
     assertThat(project.path()).isEqualTo("bar");
+    assertThat(project.isWebSite()).isFalse();
+  }
+
+  @Test
+  public void web_site() {
+    VisualStudioSolutionProject project = new VisualStudioSolutionProject("WebSite", "WebSite\\", "{E24C65DC-7377-472B-9ABA-BC803B73C61A}");
+    assertThat(project.type()).isEqualTo("{E24C65DC-7377-472B-9ABA-BC803B73C61A}");
+    assertThat(project.isWebSite()).isTrue();
   }
 
 }
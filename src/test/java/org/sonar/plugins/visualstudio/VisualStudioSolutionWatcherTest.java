@@ -0,0 +1,96 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioSolutionWatcherTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_only_reparse_changed_projects() throws Exception {
+    File solutionDir = tmp.newFolder("solution");
+    FileUtils.copyDirectory(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"), solutionDir);
+    File libraryProjectFile = new File(solutionDir, "MyLibrary/MyLibrary.csproj");
+    File testProjectFile = new File(solutionDir, "MyLibraryTest/MyLibraryTest.csproj");
+
+    VisualStudioSolutionWatcher watcher = new VisualStudioSolutionWatcher(new File(solutionDir, "solution.sln"));
+    VisualStudioSolution solution = watcher.solution();
+    VisualStudioProject libraryProject = watcher.project(libraryProjectFile);
+    VisualStudioProject testProject = watcher.project(testProjectFile);
+
+    assertThat(solution.projects()).hasSize(3);
+    assertThat(watcher.refresh()).isEmpty();
+    assertThat(watcher.solution()).isSameAs(solution);
+    assertThat(watcher.project(libraryProjectFile)).isSameAs(libraryProject);
+
+    String content = Files.toString(libraryProjectFile, Charsets.UTF_8);
+    Files.write(content.replace("<Compile Include=\"Adder.cs\" />", ""), libraryProjectFile, Charsets.UTF_8);
+    libraryProjectFile.setLastModified(libraryProjectFile.lastModified() + 2000);
+
+    assertThat(watcher.refresh()).containsOnly(libraryProjectFile.getAbsoluteFile());
+    assertThat(watcher.solution()).isSameAs(solution);
+    assertThat(watcher.project(testProjectFile)).isSameAs(testProject);
+    assertThat(watcher.project(libraryProjectFile)).isNotSameAs(libraryProject);
+    assertThat(watcher.project(libraryProjectFile).files()).excludes("Adder.cs");
+  }
+
+  @Test
+  public void should_reparse_project_when_an_item_directory_changes() throws Exception {
+    File solutionDir = tmp.newFolder("solution");
+    FileUtils.copyDirectory(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"), solutionDir);
+    File projectFile = new File(solutionDir, "MyLibraryTest/MyLibraryTest.csproj");
+
+    VisualStudioSolutionWatcher watcher = new VisualStudioSolutionWatcher(new File(solutionDir, "solution.sln"));
+    watcher.project(projectFile);
+
+    File projectDir = projectFile.getParentFile();
+    projectDir.setLastModified(projectDir.lastModified() + 2000);
+
+    assertThat(watcher.refresh()).containsOnly(projectFile.getAbsoluteFile());
+  }
+
+  @Test
+  public void should_reparse_changed_solution() throws Exception {
+    File solutionDir = tmp.newFolder("solution");
+    FileUtils.copyDirectory(new File("src/test/resources/VisualStudioProjectBuilderTest/single_sln/"), solutionDir);
+    File solutionFile = new File(solutionDir, "solution.sln");
+
+    VisualStudioSolutionWatcher watcher = new VisualStudioSolutionWatcher(solutionFile);
+    VisualStudioSolution solution = watcher.solution();
+
+    solutionFile.setLastModified(solutionFile.lastModified() + 2000);
+
+    assertThat(watcher.refresh()).isEmpty();
+    assertThat(watcher.solution()).isNotSameAs(solution);
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioSourcePatternsTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private ProjectDefinition module;
+
+  @Before
+  public void init() throws Exception {
+    module = ProjectDefinition.create().setKey("solution:Project").setBaseDir(tmp.getRoot());
+    for (int i = 0; i < 60; i++) {
+      module.addSources(file("Model/Class" + i + ".cs"));
+    }
+    module.addSources(file("Program.cs"));
+    file("Project.csproj");
+    file("Properties/Resources.resx");
+  }
+
+  @Test
+  public void should_only_include_the_module_extensions() throws Exception {
+    assertThat(new VisualStudioSourcePatterns().declare(module)).isTrue();
+
+    assertThat(module.getProperties().getProperty("sonar.sources")).isEqualTo(tmp.getRoot().getAbsolutePath());
+    assertThat(module.getProperties().getProperty("sonar.inclusions")).isEqualTo("**/*.cs");
+    // Without looking into the directories holding none of the module files
+    assertThat(module.getProperties().getProperty("sonar.exclusions")).isEqualTo("Properties/**");
+  }
+
+  @Test
+  public void should_exclude_the_other_files() throws Exception {
+    file("obj/Debug/TemporaryGeneratedFile_1.cs");
+    file("obj/Debug/TemporaryGeneratedFile_2.cs");
+    file("Model/Excluded.cs");
+
+    assertThat(new VisualStudioSourcePatterns().declare(module)).isTrue();
+
+    assertThat(module.getProperties().getProperty("sonar.exclusions")).isEqualTo("Model/Excluded.cs,Properties/**,obj/**");
+  }
+
+  @Test
+  public void should_declare_test_modules() throws Exception {
+    ProjectDefinition testModule = ProjectDefinition.create().setKey("solution:Tests").setBaseDir(tmp.getRoot());
+    testModule.addTests(module.sources().toArray(new String[0]));
+
+    assertThat(new VisualStudioSourcePatterns().declare(testModule)).isTrue();
+
+    assertThat(testModule.getProperties().getProperty("sonar.tests")).isEqualTo(tmp.getRoot().getAbsolutePath());
+    assertThat(testModule.getProperties().getProperty("sonar.test.inclusions")).isEqualTo("**/*.cs");
+  }
+
+  @Test
+  public void should_keep_the_files_when_irregular() throws Exception {
+    for (int i = 0; i < 11; i++) {
+      file("Excluded" + i + ".cs");
+    }
+
+    assertThat(new VisualStudioSourcePatterns().declare(module)).isFalse();
+    assertThat(module.getProperties().getProperty("sonar.inclusions")).isNull();
+    assertThat(module.sources()).hasSize(61);
+  }
+
+  @Test
+  public void should_keep_the_files_of_small_modules() throws Exception {
+    ProjectDefinition smallModule = ProjectDefinition.create().setKey("solution:Small").setBaseDir(tmp.getRoot());
+    smallModule.addSources(file("Program.cs"));
+
+    assertThat(new VisualStudioSourcePatterns().declare(smallModule)).isFalse();
+  }
+
+  @Test
+  public void should_keep_the_files_outside_of_the_base_dir() throws Exception {
+    module.addSources(tmp.newFile("Outside.cs"));
+    module.setBaseDir(new File(tmp.getRoot(), "Model"));
+
+    assertThat(new VisualStudioSourcePatterns().declare(module)).isFalse();
+  }
+
+  private File file(String path) throws Exception {
+    File file = new File(tmp.getRoot(), path);
+    Files.createParentDirs(file);
+    Files.touch(file);
+    return file;
+  }
+
+}
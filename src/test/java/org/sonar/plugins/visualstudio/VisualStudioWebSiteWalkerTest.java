@@ -0,0 +1,72 @@
+/*
+ * Analysis Bootstrapper for Visual Studio Projects
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.visualstudio;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class VisualStudioWebSiteWalkerTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void should_list_the_files_of_the_extensions_and_prune_output_directories() {
+    File dir = new File("src/test/resources/VisualStudioProjectBuilderTest/web_site/WebSite");
+
+    List<String> files = new VisualStudioWebSiteWalker(ImmutableList.of(".cs", ".JS"), new VisualStudioIoScheduler(1, 4)).walk(dir);
+
+    assertThat(files).containsExactly("App_Code/Helper.cs", "Default.aspx.cs", "Scripts/site.js");
+  }
+
+  @Test
+  public void should_walk_large_trees() throws Exception {
+    File dir = tmp.newFolder("Site");
+    for (int i = 0; i < 100; i++) {
+      File subDir = new File(dir, "Assets/Dir" + i);
+      subDir.mkdirs();
+      for (int j = 0; j < 20; j++) {
+        new File(subDir, "image" + j + ".png").createNewFile();
+      }
+      new File(subDir, "Code" + i + ".cs").createNewFile();
+    }
+    new File(dir, "Assets/Dir0/bin").mkdir();
+    new File(dir, "Assets/Dir0/bin/Ignored.cs").createNewFile();
+
+    List<String> files = new VisualStudioWebSiteWalker(ImmutableList.of(".cs"), new VisualStudioIoScheduler(2, 8)).walk(dir);
+
+    assertThat(files).hasSize(100);
+    assertThat(files.get(0)).isEqualTo("Assets/Dir0/Code0.cs");
+    assertThat(files).contains("Assets/Dir99/Code99.cs");
+  }
+
+  @Test
+  public void should_return_nothing_for_a_missing_directory() {
+    assertThat(new VisualStudioWebSiteWalker(ImmutableList.of(".cs"), new VisualStudioIoScheduler(1, 1)).walk(new File(tmp.getRoot(), "Missing"))).isEmpty();
+  }
+
+}
@@ -0,0 +1,202 @@
+public class Big {
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+  // padding
+}
@@ -0,0 +1 @@
+partial class Form {}
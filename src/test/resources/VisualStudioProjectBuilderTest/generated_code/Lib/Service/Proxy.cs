@@ -0,0 +1,6 @@
+//------------------------------------------------------------------------------
+// <auto-generated>
+//     This code was generated by a tool.
+// </auto-generated>
+//------------------------------------------------------------------------------
+public class Proxy {}
@@ -0,0 +1 @@
+public partial class _Default {}